@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.benchmark;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.math3.complex.Complex;
+
+@Getter
+@RequiredArgsConstructor
+public enum CanonicalViewport {
+    FULL_SET(new Complex(-0.5, 0), 0.004d, 1000),
+    SEAHORSE_VALLEY(new Complex(-0.7453, 0.1127), 0.00001d, 2000),
+    DEEP_MINIBROT(new Complex(-1.9210009466458602, 0), 0.0000000008d, 5000);
+
+    public static final int WIDTH = 750;
+    public static final int HEIGHT = 500;
+
+    private final Complex center;
+    private final double pixelIncrement;
+    private final int iterations;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.benchmark;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the coloring of escaped points only, independent of the escape time calculation:
+ * each invocation colors one point for every possible number of iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorCalculatorBenchmark {
+
+    @Param({"1000", "10000"})
+    public int iterations;
+
+    private MandelbrotColorCalculator color;
+    private MandelbrotSet.MandelbrotSetMembership[] memberships;
+
+    @Setup
+    public void setUp() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(iterations);
+        color = new MandelbrotColorCalculator(mandelbrotSet);
+        memberships = new MandelbrotSet.MandelbrotSetMembership[iterations];
+        for (int i = 0; i < iterations; i++) {
+            memberships[i] = new MandelbrotSet.MandelbrotSetMembership(false, i + 1, iterations);
+        }
+    }
+
+    @Benchmark
+    public void determineColor(Blackhole blackhole) {
+        for (MandelbrotSet.MandelbrotSetMembership membership : memberships) {
+            blackhole.consume(color.determineColor(membership));
+        }
+    }
+
+    @Benchmark
+    public void determineRGB(Blackhole blackhole) {
+        for (int i = 1; i <= iterations; i++) {
+            blackhole.consume(color.determineRGB(i, iterations));
+        }
+    }
+}
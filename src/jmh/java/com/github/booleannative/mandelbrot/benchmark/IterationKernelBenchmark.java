@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.benchmark;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.KernelType;
+import lombok.Data;
+import org.apache.commons.math3.complex.Complex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes a strip of rows through the center of each viewport, once by calling {@link MandelbrotSet} directly, as
+ * before the kernels were pluggable, and once through {@link IterationKernel}. The call site of the latter sees every
+ * kernel type during the setup, like it does in an application that renders more than one fractal, so comparing
+ * {@code mandelbrotSet} with {@code iterationKernel} and {@code -p kernel=MANDELBROT} shows what the interface costs.
+ * <p>
+ * The {@code Pixels} variants compute the same strip point by point, as boundary tracing does, so they show what an
+ * interface call per pixel costs.
+ * <p>
+ * {@code baseline} computes the same strip with {@link BaselineMandelbrotSet}, a copy of the escape time loop before
+ * the kernels were pluggable, so comparing it with {@code iterationKernel} shows whether a view got slower. The baseline
+ * has no interior or periodicity check, run with {@code -jvmArgs -DdisableInteriorCheck -DdisablePeriodicityCheck} to
+ * compare the loops alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationKernelBenchmark {
+    private static final int ROWS = 16;
+
+    @Param
+    public CanonicalViewport viewport;
+
+    private final MandelbrotSet mandelbrotSet = new MandelbrotSet();
+    private final BaselineMandelbrotSet baselineMandelbrotSet = new BaselineMandelbrotSet();
+    private final int[] iterationBuffer = new int[CanonicalViewport.WIDTH * ROWS];
+    private double originReal;
+    private double originImaginary;
+
+    @State(Scope.Benchmark)
+    public static class Kernel {
+        @Param
+        public KernelType kernel;
+
+        private IterationKernel iterationKernel;
+
+        @Setup
+        public void setUp(IterationKernelBenchmark benchmark) {
+            for (KernelType kernelType : KernelType.values()) {
+                IterationKernel pollution = kernelType.create();
+                benchmark.prepare(pollution);
+                for (int i = 0; i < 100; i++) {
+                    benchmark.computeStrip(pollution);
+                    benchmark.computeStripPixels(pollution);
+                }
+            }
+            iterationKernel = kernel.create();
+            benchmark.prepare(iterationKernel);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        prepare(mandelbrotSet);
+        baselineMandelbrotSet.setIterations(viewport.getIterations());
+    }
+
+    @Benchmark
+    public int[] baseline() {
+        double pixelIncrement = viewport.getPixelIncrement();
+        // the baseline only knows absolute coordinates
+        double topLeftReal = viewport.getCenter().getReal() - CanonicalViewport.WIDTH * pixelIncrement / 2d;
+        double topLeftImaginary = viewport.getCenter().getImaginary() + ROWS * pixelIncrement / 2d;
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < CanonicalViewport.WIDTH; x++) {
+                iterationBuffer[y * CanonicalViewport.WIDTH + x] = baselineMandelbrotSet
+                        .checkIsMemberOfMandelbrotSet(new Complex(topLeftReal + x * pixelIncrement, topLeftImaginary - y * pixelIncrement))
+                        .getIterationsNeeded();
+            }
+        }
+        return iterationBuffer;
+    }
+
+    @Benchmark
+    public int[] mandelbrotSet() {
+        mandelbrotSet.computeIterations(originReal, originImaginary, viewport.getPixelIncrement(), CanonicalViewport.WIDTH, ROWS, iterationBuffer, 0, CanonicalViewport.WIDTH);
+        return iterationBuffer;
+    }
+
+    @Benchmark
+    public int[] iterationKernel(Kernel kernel) {
+        return computeStrip(kernel.iterationKernel);
+    }
+
+    @Benchmark
+    public int[] mandelbrotSetPixels() {
+        double pixelIncrement = viewport.getPixelIncrement();
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < CanonicalViewport.WIDTH; x++) {
+                iterationBuffer[y * CanonicalViewport.WIDTH + x] = mandelbrotSet.computeIterations(originReal + x * pixelIncrement, originImaginary - y * pixelIncrement);
+            }
+        }
+        return iterationBuffer;
+    }
+
+    @Benchmark
+    public int[] iterationKernelPixels(Kernel kernel) {
+        return computeStripPixels(kernel.iterationKernel);
+    }
+
+    private int[] computeStrip(IterationKernel iterationKernel) {
+        iterationKernel.computeIterations(originReal, originImaginary, viewport.getPixelIncrement(), CanonicalViewport.WIDTH, ROWS, iterationBuffer, 0, CanonicalViewport.WIDTH);
+        return iterationBuffer;
+    }
+
+    private int[] computeStripPixels(IterationKernel iterationKernel) {
+        double pixelIncrement = viewport.getPixelIncrement();
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < CanonicalViewport.WIDTH; x++) {
+                iterationBuffer[y * CanonicalViewport.WIDTH + x] = iterationKernel.computeIterations(originReal + x * pixelIncrement, originImaginary - y * pixelIncrement);
+            }
+        }
+        return iterationBuffer;
+    }
+
+    private void prepare(IterationKernel iterationKernel) {
+        iterationKernel.setIterations(viewport.getIterations());
+        double pixelIncrement = viewport.getPixelIncrement();
+        Complex center = iterationKernel.prepareView(BigDecimal.valueOf(viewport.getCenter().getReal()), BigDecimal.valueOf(viewport.getCenter().getImaginary()),
+                pixelIncrement, CanonicalViewport.WIDTH, ROWS);
+        originReal = center.getReal() - CanonicalViewport.WIDTH * pixelIncrement / 2d;
+        originImaginary = center.getImaginary() + ROWS * pixelIncrement / 2d;
+    }
+
+    /**
+     * The escape time loop of {@link MandelbrotSet} before the kernels were pluggable, called the way the plot strategies
+     * called it. Frozen, so it stays the reference for regressions.
+     */
+    static class BaselineMandelbrotSet {
+        private int iterations = 1000;
+
+        public MandelbrotSetMembership checkIsMemberOfMandelbrotSet(Complex c) {
+            int iteration = 0;
+            double lastReal = 0d;
+            double zImaginary = 0d;
+            double cReal = c.getReal();
+            double cImaginary = c.getImaginary();
+            while (iteration < iterations) {
+                double zReal = lastReal * lastReal - zImaginary * zImaginary + cReal;
+                if (zReal < -2d || zReal > 2d) {
+                    return new MandelbrotSetMembership(false, iteration, iterations);
+                }
+                zImaginary = 2 * lastReal * zImaginary + cImaginary;
+                lastReal = zReal;
+                iteration++;
+            }
+            return new MandelbrotSetMembership(true, iterations, iterations);
+        }
+
+        public void setIterations(int iterations) {
+            this.iterations = iterations;
+        }
+
+        @Data
+        static class MandelbrotSetMembership {
+            final boolean isMemberOfMandelbrotSet;
+            final int iterationsNeeded;
+            final int maxIterations;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.benchmark;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.apache.commons.math3.complex.Complex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MandelbrotSetBenchmark {
+
+    public enum Point {
+        // inside the main cardioid, always runs the full number of iterations
+        INTERIOR(new Complex(-0.1, 0.1)),
+        // close to the boundary in the seahorse valley, escapes after a few hundred iterations
+        BOUNDARY(new Complex(-0.7453, 0.1127)),
+        // escapes after a handful of iterations
+        EXTERIOR(new Complex(0.5, 0.5));
+
+        private final Complex c;
+
+        Point(Complex c) {
+            this.c = c;
+        }
+    }
+
+    @Param
+    public Point point;
+
+    @Param({"1000", "10000"})
+    public int iterations;
+
+    @Param({"true", "false"})
+    public boolean interiorCheck;
+
+    @Param({"true", "false"})
+    public boolean periodicityCheck;
+
+    private final MandelbrotSet mandelbrotSet = new MandelbrotSet();
+    private Complex c;
+    private double cReal;
+    private double cImaginary;
+
+    @Setup
+    public void setUp() {
+        mandelbrotSet.setIterations(iterations);
+        mandelbrotSet.setInteriorCheck(interiorCheck);
+        mandelbrotSet.setPeriodicityCheck(periodicityCheck);
+        c = point.c;
+        cReal = c.getReal();
+        cImaginary = c.getImaginary();
+    }
+
+    @Benchmark
+    public MandelbrotSet.MandelbrotSetMembership checkIsMemberOfMandelbrotSet() {
+        return mandelbrotSet.checkIsMemberOfMandelbrotSet(c);
+    }
+
+    @Benchmark
+    public int computeIterations() {
+        return mandelbrotSet.computeIterations(cReal, cImaginary);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.benchmark;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PlotStrategyBenchmark {
+
+    @Param
+    public CanonicalViewport viewport;
+
+    @Param
+    public PlotStrategyType strategy;
+
+    @Param({"true", "false"})
+    public boolean vectorKernel;
+
+    private MandelbrotPlotStrategy plotStrategy;
+    private int[] iterationField;
+
+    @Setup
+    public void setUp() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(viewport.getIterations());
+        mandelbrotSet.setVectorKernel(vectorKernel);
+        if (mandelbrotSet.isVectorKernel() != vectorKernel) {
+            // without -PvectorKernel, the scalar kernel would be measured under the name of the vector kernel
+            throw new IllegalStateException("the vector kernel is not built, run with -PvectorKernel or -p vectorKernel=false");
+        }
+        plotStrategy = strategy.create(mandelbrotSet);
+        iterationField = new int[CanonicalViewport.WIDTH * CanonicalViewport.HEIGHT];
+    }
+
+    @Benchmark
+    public int[] computeIterations() {
+        plotStrategy.computeIterations(viewport.getCenter(), CanonicalViewport.WIDTH, CanonicalViewport.HEIGHT, viewport.getPixelIncrement(), iterationField);
+        return iterationField;
+    }
+}
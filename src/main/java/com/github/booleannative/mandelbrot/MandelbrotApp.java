@@ -17,10 +17,32 @@
 
 package com.github.booleannative.mandelbrot;
 
+import com.github.booleannative.mandelbrot.batch.AnimationJob;
+import com.github.booleannative.mandelbrot.batch.AnimationRenderer;
+import com.github.booleannative.mandelbrot.batch.BatchRenderer;
+import com.github.booleannative.mandelbrot.batch.RenderJob;
+import com.github.booleannative.mandelbrot.distributed.DistributedPlotStrategy;
+import com.github.booleannative.mandelbrot.distributed.TileWorker;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.JuliaSet;
+import com.github.booleannative.mandelbrot.kernel.KernelType;
+import com.github.booleannative.mandelbrot.kernel.Multibrot;
 import com.github.booleannative.mandelbrot.plot.MandelbrotPlot;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import com.github.booleannative.mandelbrot.server.TileRenderer;
+import com.github.booleannative.mandelbrot.server.TileServer;
+import com.github.booleannative.mandelbrot.server.TileStore;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.List;
+
 @Slf4j
 public class MandelbrotApp {
     private static final String INTERACTIVE_COMMANDS_MESSAGE = "Use the following keys to interactively change the plot while the application is running:" +
@@ -36,10 +58,47 @@ public class MandelbrotApp {
             "\n\tdecrease brightness: \t\t\t\t 'V'" +
             "\n\tincrease saturation: \t\t\t\t 'X'" +
             "\n\tdecrease saturation: \t\t\t\t 'Y'";
+    private static final long DEFAULT_TILE_CACHE_MEGABYTES = 1024;
     private final Option iterations = Option.builder().option("i").longOpt("iterations").hasArg(true).argName("number").desc("set initial number of iterations").build();
     private final Option help = Option.builder().option("h").longOpt("help").hasArg(false).desc("show this help message").build();
+    private final Option batch = Option.builder().option("b").longOpt("batch").hasArg(false).desc("render to a file without opening a window").build();
+    private final Option real = Option.builder().longOpt("real").hasArg(true).argName("number").desc("batch mode: real part of the center, default " + RenderJob.DEFAULT_CENTER_REAL).build();
+    private final Option imaginary = Option.builder().longOpt("imaginary").hasArg(true).argName("number").desc("batch mode: imaginary part of the center, default " + RenderJob.DEFAULT_CENTER_IMAGINARY).build();
+    private final Option increment = Option.builder().option("p").longOpt("increment").hasArg(true).argName("number").desc("batch mode: distance between two pixels, default " + RenderJob.DEFAULT_PIXEL_INCREMENT).build();
+    private final Option width = Option.builder().longOpt("width").hasArg(true).argName("pixels").desc("batch mode: width of the image, default " + RenderJob.DEFAULT_WIDTH).build();
+    private final Option height = Option.builder().longOpt("height").hasArg(true).argName("pixels").desc("batch mode: height of the image, default " + RenderJob.DEFAULT_HEIGHT).build();
+    private final Option output = Option.builder().option("o").longOpt("output").hasArg(true).argName("file").desc("batch mode: output file, default mandelbrot.png, animation: output directory, default frames").build();
+    private final Option format = Option.builder().longOpt("format").hasArg(true).argName("png|raw|rgb")
+            .desc("batch mode: write a png image or a raw iteration dump, default derived from the output file, animation: write png or raw rgb frames, default png").build();
+    private final Option jobs = Option.builder().option("j").longOpt("jobs").hasArg(true).argName("file").desc("batch mode: render all views listed in the job file," +
+            " one per line: <real> <imaginary> <increment> <width> <height> <iterations> <output> [png|raw]").build();
+    private final Option strategy = Option.builder().option("s").longOpt("strategy").hasArg(true).argName("rectangles|boundary-tracing|parallel|distance-estimation")
+            .desc("how the pixels to iterate are chosen, default rectangles").build();
+    private final Option worker = Option.builder().longOpt("worker").hasArg(true).argName("port").desc("compute tiles for coordinators connecting to the given port").build();
+    private final Option workers = Option.builder().longOpt("workers").hasArg(true).argName("host:port,...")
+            .desc("batch and animation mode: let the given workers compute the tiles of the png images and frames").build();
+    private final Option serve = Option.builder().longOpt("serve").hasArg(true).argName("port").desc("serve map tiles at http://localhost:<port>/{z}/{x}/{y}.png").build();
+    private final Option tileCache = Option.builder().longOpt("tile-cache").hasArg(true).argName("directory")
+            .desc("server mode: keep the iteration counts of the tiles in the given directory").build();
+    private final Option animate = Option.builder().longOpt("animate").hasArg(true).argName("frames")
+            .desc("render a zoom from the view given by --real, --imaginary and --increment as numbered frames into the output directory").build();
+    private final Option targetReal = Option.builder().longOpt("target-real").hasArg(true).argName("number").desc("animation: real part of the center to zoom to, default --real").build();
+    private final Option targetImaginary = Option.builder().longOpt("target-imaginary").hasArg(true).argName("number")
+            .desc("animation: imaginary part of the center to zoom to, default --imaginary").build();
+    private final Option zoom = Option.builder().longOpt("zoom").hasArg(true).argName("factor")
+            .desc("animation: how much the last frame is magnified compared to the first, below 1 to zoom out, default " + AnimationJob.DEFAULT_ZOOM_FACTOR).build();
+    private final Option easing = Option.builder().longOpt("easing").hasArg(true).argName("linear|ease-in|ease-out|ease-in-out")
+            .desc("animation: how the zoom speeds up and slows down, default linear").build();
+    private final Option threads = Option.builder().longOpt("threads").hasArg(true).argName("count")
+            .desc("number of threads rendering the window and, on a lower priority, batch images, animations and tiles, default the number of cores").build();
+    private final Option kernel = Option.builder().option("k").longOpt("kernel").hasArg(true).argName("mandelbrot|julia|multibrot|burning-ship")
+            .desc("the fractal to render, default mandelbrot. Map tiles and workers only render the mandelbrot set").build();
+    private final Option julia = Option.builder().longOpt("julia").hasArg(true).argName("real,imaginary")
+            .desc("julia kernel: the constant c of z^2 + c, default " + JuliaSet.DEFAULT_CONSTANT_REAL + "," + JuliaSet.DEFAULT_CONSTANT_IMAGINARY).build();
+    private final Option power = Option.builder().longOpt("power").hasArg(true).argName("d")
+            .desc("multibrot kernel: the power d of z^d + c, default " + Multibrot.DEFAULT_POWER).build();
     private final Options options = buildOptions();
-    private final MandelbrotPlot mandelbrotPlot = new MandelbrotPlot();
+    private int initialIterations = RenderJob.DEFAULT_ITERATIONS;
     private String programName;
 
     public static void main(String[] args) {
@@ -50,6 +109,29 @@ public class MandelbrotApp {
         Options options = new org.apache.commons.cli.Options();
         options.addOption(iterations);
         options.addOption(help);
+        options.addOption(batch);
+        options.addOption(real);
+        options.addOption(imaginary);
+        options.addOption(increment);
+        options.addOption(width);
+        options.addOption(height);
+        options.addOption(output);
+        options.addOption(format);
+        options.addOption(jobs);
+        options.addOption(strategy);
+        options.addOption(worker);
+        options.addOption(workers);
+        options.addOption(serve);
+        options.addOption(tileCache);
+        options.addOption(animate);
+        options.addOption(targetReal);
+        options.addOption(targetImaginary);
+        options.addOption(zoom);
+        options.addOption(easing);
+        options.addOption(threads);
+        options.addOption(kernel);
+        options.addOption(julia);
+        options.addOption(power);
         return options;
     }
 
@@ -60,14 +142,40 @@ public class MandelbrotApp {
                 .getPath())
                 .getName();
 
+        CommandLine cmd = null;
+        PlotStrategyType strategyType = null;
+        IterationKernel iterationKernel = null;
         try {
-            CommandLine cmd = new DefaultParser().parse(options, args);
+            cmd = new DefaultParser().parse(options, args);
             handleHelp(cmd);
             handleIterations(cmd);
-        } catch (ParseException e) {
+            if (cmd.hasOption(threads)) {
+                RenderExecutor.configureDefault(Integer.parseInt(cmd.getOptionValue(threads)));
+            }
+            strategyType = PlotStrategyType.parse(cmd.getOptionValue(strategy, "rectangles"));
+            iterationKernel = createKernel(cmd);
+        } catch (ParseException | IllegalArgumentException e) {
             log.error("invalid options specified: {}", e.getMessage());
             System.exit(1);
         }
+        if (cmd.hasOption(serve)) {
+            runTileServer(cmd, strategyType);
+            return;
+        }
+        if (cmd.hasOption(worker)) {
+            runWorker(cmd, strategyType);
+            return;
+        }
+        if (cmd.hasOption(animate)) {
+            renderAnimation(cmd, strategyType, iterationKernel);
+            return;
+        }
+        if (cmd.hasOption(batch) || cmd.hasOption(jobs)) {
+            renderBatch(cmd, strategyType, iterationKernel);
+            return;
+        }
+        MandelbrotPlot mandelbrotPlot = new MandelbrotPlot(strategyType, iterationKernel);
+        mandelbrotPlot.setIterations(initialIterations);
         mandelbrotPlot.plot();
     }
 
@@ -75,8 +183,7 @@ public class MandelbrotApp {
         if (cmd.hasOption(iterations)) {
             String iterationsArgument = cmd.getOptionValue(iterations);
             try {
-                int initialIterations = Integer.parseInt(iterationsArgument);
-                mandelbrotPlot.getMandelBrotSet().setIterations(initialIterations);
+                initialIterations = Integer.parseInt(iterationsArgument);
             } catch (NumberFormatException e) {
                 log.error("invalid number of iterations was specifIed: '{}'", iterationsArgument);
                 printHelp();
@@ -85,6 +192,171 @@ public class MandelbrotApp {
         }
     }
 
+    /**
+     * The kernel given by --kernel, with the constant or power given by --julia or --power.
+     */
+    private IterationKernel createKernel(CommandLine cmd) {
+        KernelType kernelType = KernelType.parse(cmd.getOptionValue(kernel, "mandelbrot"));
+        if (kernelType != KernelType.MANDELBROT && (cmd.hasOption(serve) || cmd.hasOption(worker) || cmd.hasOption(workers))) {
+            throw new IllegalArgumentException("map tiles and workers only render the mandelbrot set");
+        }
+        switch (kernelType) {
+            case JULIA:
+                if (!cmd.hasOption(julia)) {
+                    return kernelType.create();
+                }
+                String[] constant = cmd.getOptionValue(julia).split(",");
+                try {
+                    if (constant.length != 2) {
+                        throw new NumberFormatException();
+                    }
+                    return new JuliaSet(Double.parseDouble(constant[0].trim()), Double.parseDouble(constant[1].trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid value for --julia: '" + cmd.getOptionValue(julia) + "'");
+                }
+            case MULTIBROT:
+                return new Multibrot(parseInt(cmd, power, Multibrot.DEFAULT_POWER));
+            default:
+                return kernelType.create();
+        }
+    }
+
+    private void renderBatch(CommandLine cmd, PlotStrategyType strategyType, IterationKernel iterationKernel) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            List<RenderJob> renderJobs = cmd.hasOption(jobs) ? BatchRenderer.readJobs(new File(cmd.getOptionValue(jobs))) : List.of(buildRenderJob(cmd));
+            BatchRenderer batchRenderer;
+            if (cmd.hasOption(workers)) {
+                List<InetSocketAddress> workerAddresses = DistributedPlotStrategy.parseWorkers(cmd.getOptionValue(workers));
+                batchRenderer = new BatchRenderer(mandelbrotSet -> new DistributedPlotStrategy(mandelbrotSet, workerAddresses));
+            } else {
+                batchRenderer = new BatchRenderer(iterationKernel, strategyType);
+            }
+            batchRenderer.render(renderJobs);
+        } catch (IllegalArgumentException e) {
+            log.error("invalid batch job: {}", e.getMessage());
+            printHelp();
+            System.exit(1);
+        } catch (IOException e) {
+            log.error("batch rendering failed", e);
+            System.exit(1);
+        }
+    }
+
+    private void renderAnimation(CommandLine cmd, PlotStrategyType strategyType, IterationKernel iterationKernel) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            BigDecimal startReal = parseBigDecimal(cmd, real, BigDecimal.valueOf(RenderJob.DEFAULT_CENTER_REAL));
+            BigDecimal startImaginary = parseBigDecimal(cmd, imaginary, BigDecimal.valueOf(RenderJob.DEFAULT_CENTER_IMAGINARY));
+            AnimationJob job = new AnimationJob(
+                    startReal,
+                    startImaginary,
+                    parseDouble(cmd, increment, RenderJob.DEFAULT_PIXEL_INCREMENT),
+                    parseBigDecimal(cmd, targetReal, startReal),
+                    parseBigDecimal(cmd, targetImaginary, startImaginary),
+                    parseDouble(cmd, zoom, AnimationJob.DEFAULT_ZOOM_FACTOR),
+                    parseInt(cmd, animate, AnimationJob.DEFAULT_FRAMES),
+                    AnimationJob.Easing.parse(cmd.getOptionValue(easing, "linear")),
+                    parseInt(cmd, width, RenderJob.DEFAULT_WIDTH),
+                    parseInt(cmd, height, RenderJob.DEFAULT_HEIGHT),
+                    initialIterations,
+                    new File(cmd.getOptionValue(output, "frames")),
+                    AnimationJob.FrameFormat.parse(cmd.getOptionValue(format, "png")));
+            AnimationRenderer animationRenderer;
+            if (cmd.hasOption(workers)) {
+                List<InetSocketAddress> workerAddresses = DistributedPlotStrategy.parseWorkers(cmd.getOptionValue(workers));
+                animationRenderer = new AnimationRenderer(mandelbrotSet -> new DistributedPlotStrategy(mandelbrotSet, workerAddresses));
+            } else {
+                animationRenderer = new AnimationRenderer(iterationKernel, strategyType);
+            }
+            animationRenderer.render(job);
+        } catch (IllegalArgumentException e) {
+            log.error("invalid animation: {}", e.getMessage());
+            printHelp();
+            System.exit(1);
+        } catch (IOException e) {
+            log.error("rendering the animation failed", e);
+            System.exit(1);
+        }
+    }
+
+    private void runTileServer(CommandLine cmd, PlotStrategyType strategyType) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            TileStore tileStore = cmd.hasOption(tileCache)
+                    ? new TileStore(Paths.get(cmd.getOptionValue(tileCache)), Long.getLong("tileCacheSize", DEFAULT_TILE_CACHE_MEGABYTES) * 1024 * 1024)
+                    : null;
+            new TileServer(new TileRenderer(strategyType, tileStore), parseInt(cmd, serve, 0),
+                    Integer.getInteger("tileServerThreads", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("tileServerQueue", TileServer.DEFAULT_QUEUE_CAPACITY), initialIterations);
+            Thread.currentThread().join();
+        } catch (IllegalArgumentException e) {
+            log.error("invalid tile server: {}", e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            log.error("starting the tile server failed", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker(CommandLine cmd, PlotStrategyType strategyType) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            new TileWorker(strategyType, parseInt(cmd, worker, 0));
+            Thread.currentThread().join();
+        } catch (IllegalArgumentException e) {
+            log.error("invalid worker: {}", e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            log.error("starting the worker failed", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RenderJob buildRenderJob(CommandLine cmd) {
+        File outputFile = new File(cmd.getOptionValue(output, "mandelbrot.png"));
+        return new RenderJob(
+                parseBigDecimal(cmd, real, BigDecimal.valueOf(RenderJob.DEFAULT_CENTER_REAL)),
+                parseBigDecimal(cmd, imaginary, BigDecimal.valueOf(RenderJob.DEFAULT_CENTER_IMAGINARY)),
+                parseDouble(cmd, increment, RenderJob.DEFAULT_PIXEL_INCREMENT),
+                parseInt(cmd, width, RenderJob.DEFAULT_WIDTH),
+                parseInt(cmd, height, RenderJob.DEFAULT_HEIGHT),
+                initialIterations,
+                outputFile,
+                cmd.hasOption(format) ? RenderJob.Format.parse(cmd.getOptionValue(format)) : RenderJob.Format.of(outputFile));
+    }
+
+    private double parseDouble(CommandLine cmd, Option option, double defaultValue) {
+        String argument = cmd.getOptionValue(option);
+        try {
+            return argument == null ? defaultValue : Double.parseDouble(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for --" + option.getLongOpt() + ": '" + argument + "'");
+        }
+    }
+
+    private BigDecimal parseBigDecimal(CommandLine cmd, Option option, BigDecimal defaultValue) {
+        String argument = cmd.getOptionValue(option);
+        try {
+            return argument == null ? defaultValue : new BigDecimal(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for --" + option.getLongOpt() + ": '" + argument + "'");
+        }
+    }
+
+    private int parseInt(CommandLine cmd, Option option, int defaultValue) {
+        String argument = cmd.getOptionValue(option);
+        try {
+            return argument == null ? defaultValue : Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for --" + option.getLongOpt() + ": '" + argument + "'");
+        }
+    }
+
     private void handleHelp(CommandLine cmd) {
         if (cmd.hasOption(help)) {
             printHelp();
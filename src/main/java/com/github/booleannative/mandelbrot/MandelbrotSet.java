@@ -17,42 +17,337 @@
 
 package com.github.booleannative.mandelbrot;
 
+import com.github.booleannative.mandelbrot.kernel.DoubleDoubleKernel;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.PerturbationKernel;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import com.github.booleannative.mandelbrot.kernel.ReferenceKernel;
+import com.github.booleannative.mandelbrot.kernel.RowKernel;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.complex.Complex;
 
-public class MandelbrotSet {
+import java.math.BigDecimal;
+
+/**
+ * The kernel of the Mandelbrot set z^2 + c. It recognizes the main cardioid and the period-2 bulb without iterating,
+ * iterates rows on the vector kernel if available and switches to double-double and perturbation for deep zooms.
+ */
+@Slf4j
+public class MandelbrotSet implements IterationKernel {
+    private static final RowKernel VECTOR_KERNEL = loadVectorKernel();
     private int iterations = 1000;
+    private boolean interiorCheck = System.getProperty("disableInteriorCheck") == null;
+    private boolean periodicityCheck = System.getProperty("disablePeriodicityCheck") == null;
+    private boolean vectorKernel = VECTOR_KERNEL != null && System.getProperty("disableVectorKernel") == null;
+    private volatile boolean floatPrecision;
+    private volatile ReferenceKernel referenceKernel;
+
+    /**
+     * The vector kernel is only part of the jar when built with -PvectorKernel and can only be loaded
+     * when the JVM runs with --add-modules jdk.incubator.vector, otherwise the scalar kernel is used.
+     */
+    private static RowKernel loadVectorKernel() {
+        try {
+            RowKernel kernel = (RowKernel) Class.forName("com.github.booleannative.mandelbrot.kernel.VectorRowKernel").getDeclaredConstructor().newInstance();
+            log.info("using vector kernel");
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.info("vector kernel not available, using scalar kernel: {}", e.toString());
+            return null;
+        }
+    }
 
     public boolean isMemberOfMandelbrotSet(Complex c) {
         return checkIsMemberOfMandelbrotSet(c).isMemberOfMandelbrotSet();
     }
 
     public MandelbrotSetMembership checkIsMemberOfMandelbrotSet(Complex c) {
+        int iterationsNeeded = computeIterations(c.getReal(), c.getImaginary());
+        return new MandelbrotSetMembership(isMember(iterationsNeeded), iterationsNeeded, iterations);
+    }
+
+    public boolean isMember(int iterationsNeeded) {
+        return iterationsNeeded >= iterations;
+    }
+
+    /**
+     * Selects the cheapest precision that resolves the given view and prepares its kernel. For double-double and
+     * perturbation, the reference point and orbit are kept as long as only the center moves.
+     *
+     * @return the center in the coordinates passed to {@link #computeIterations(double, double)}, i.e. relative to the
+     * reference point for double-double and perturbation
+     */
+    @Override
+    public Complex prepareView(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height) {
+        return prepareView(centerReal, centerImaginary, pixelIncrement, selectPrecision(centerReal, centerImaginary, pixelIncrement, width, height));
+    }
+
+    /**
+     * Same as {@link #prepareView(BigDecimal, BigDecimal, double, int, int)}, but with the given precision instead of
+     * the one selected for the view, e.g. to compute a part of a larger view with the precision of the whole view.
+     */
+    public Complex prepareView(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, Precision precision) {
+        // the window logs the precision of each frame it shows, this is called for prefetched views and tiles as well
+        log.debug("preparing a view with {} precision, increment: {}", precision, pixelIncrement);
+        floatPrecision = precision == Precision.FLOAT;
+        if (precision == Precision.FLOAT || precision == Precision.DOUBLE) {
+            referenceKernel = null;
+            return new Complex(centerReal.doubleValue(), centerImaginary.doubleValue());
+        }
+        ReferenceKernel kernel = referenceKernel;
+        if (kernel == null || kernel.getPrecision() != precision || !kernel.isComputedFor(pixelIncrement, iterations)) {
+            long startTime = System.currentTimeMillis();
+            kernel = precision == Precision.DOUBLE_DOUBLE
+                    ? new DoubleDoubleKernel(centerReal, centerImaginary, pixelIncrement)
+                    : new PerturbationKernel(centerReal, centerImaginary, pixelIncrement, iterations);
+            referenceKernel = kernel;
+            log.debug("{} kernel prepared in {}s", precision, (System.currentTimeMillis() - startTime) / 1000.0);
+        }
+        return new Complex(centerReal.subtract(kernel.getReferenceReal()).doubleValue(), centerImaginary.subtract(kernel.getReferenceImaginary()).doubleValue());
+    }
+
+    /**
+     * @return the precision {@link #prepareView} selects for the given view and the current number of iterations,
+     * without preparing its kernel
+     */
+    @Override
+    public Precision selectPrecision(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height) {
+        double extent = Math.max(Math.abs(centerReal.doubleValue()) + width * pixelIncrement / 2d, Math.abs(centerImaginary.doubleValue()) + height * pixelIncrement / 2d);
+        return Precision.select(pixelIncrement, extent, iterations);
+    }
+
+    /**
+     * Allocation-free escape time calculation for a single point.
+     * While a reference kernel is set, the point is relative to its reference point.
+     *
+     * @return the number of iterations needed to escape, or {@link #getIterations()} if the point is a member of the set
+     */
+    @Override
+    public int computeIterations(double cReal, double cImaginary) {
+        ReferenceKernel kernel = referenceKernel;
+        if (kernel != null) {
+            return kernel.computeIterations(cReal, cImaginary, iterations);
+        }
+        if (interiorCheck && isInMainCardioidOrPeriod2Bulb(cReal, cImaginary)) {
+            return iterations;
+        }
+        if (floatPrecision) {
+            return periodicityCheck ? iterateWithPeriodicityCheck((float) cReal, (float) cImaginary) : iterate((float) cReal, (float) cImaginary);
+        }
+        if (periodicityCheck) {
+            return iterateWithPeriodicityCheck(cReal, cImaginary);
+        }
+        return iterate(cReal, cImaginary);
+    }
+
+    static boolean isInMainCardioidOrPeriod2Bulb(double cReal, double cImaginary) {
+        return isInMainCardioid(cReal, cImaginary) || isInPeriod2Bulb(cReal, cImaginary);
+    }
+
+    public static boolean isInMainCardioid(double cReal, double cImaginary) {
+        double imaginarySquared = cImaginary * cImaginary;
+        double shiftedReal = cReal - 0.25d;
+        double q = shiftedReal * shiftedReal + imaginarySquared;
+        return q * (q + shiftedReal) <= 0.25d * imaginarySquared;
+    }
+
+    public static boolean isInPeriod2Bulb(double cReal, double cImaginary) {
+        double bulbReal = cReal + 1d;
+        return bulbReal * bulbReal + cImaginary * cImaginary <= 0.0625d;
+    }
+
+    private int iterate(double cReal, double cImaginary) {
+        int iteration = 0;
+        double lastReal = 0d;
+        double zImaginary = 0d;
+        while (iteration < iterations) {
+            double zReal = lastReal * lastReal - zImaginary * zImaginary + cReal;
+            if (zReal < -2d || zReal > 2d) {
+                return iteration;
+            }
+            zImaginary = 2 * lastReal * zImaginary + cImaginary;
+            lastReal = zReal;
+            iteration++;
+        }
+        return iterations;
+    }
+
+    /**
+     * Same loop as {@link #iterate(double, double)}, but remembers z at power of two intervals (Brent's cycle detection).
+     * Once z hits the remembered value exactly, the orbit repeats forever and can never escape, so the result is
+     * identical to running all iterations.
+     */
+    private int iterateWithPeriodicityCheck(double cReal, double cImaginary) {
         int iteration = 0;
         double lastReal = 0d;
         double zImaginary = 0d;
-        double cReal = c.getReal();
-        double cImaginary = c.getImaginary();
+        double checkReal = 0d;
+        double checkImaginary = 0d;
+        int checkInterval = 1;
+        int sinceCheck = 0;
         while (iteration < iterations) {
             double zReal = lastReal * lastReal - zImaginary * zImaginary + cReal;
             if (zReal < -2d || zReal > 2d) {
-                return new MandelbrotSetMembership(false, iteration, iterations);
+                return iteration;
+            }
+            zImaginary = 2 * lastReal * zImaginary + cImaginary;
+            lastReal = zReal;
+            iteration++;
+            if (lastReal == checkReal && zImaginary == checkImaginary) {
+                return iterations;
+            }
+            if (++sinceCheck == checkInterval) {
+                checkReal = lastReal;
+                checkImaginary = zImaginary;
+                sinceCheck = 0;
+                checkInterval <<= 1;
+            }
+        }
+        return iterations;
+    }
+
+    // float versions of the loops above, the same operations in the same order
+    private int iterate(float cReal, float cImaginary) {
+        int iteration = 0;
+        float lastReal = 0f;
+        float zImaginary = 0f;
+        while (iteration < iterations) {
+            float zReal = lastReal * lastReal - zImaginary * zImaginary + cReal;
+            if (zReal < -2f || zReal > 2f) {
+                return iteration;
             }
             zImaginary = 2 * lastReal * zImaginary + cImaginary;
             lastReal = zReal;
             iteration++;
         }
-        return new MandelbrotSetMembership(true, iterations, iterations);
+        return iterations;
     }
 
+    private int iterateWithPeriodicityCheck(float cReal, float cImaginary) {
+        int iteration = 0;
+        float lastReal = 0f;
+        float zImaginary = 0f;
+        float checkReal = 0f;
+        float checkImaginary = 0f;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        while (iteration < iterations) {
+            float zReal = lastReal * lastReal - zImaginary * zImaginary + cReal;
+            if (zReal < -2f || zReal > 2f) {
+                return iteration;
+            }
+            zImaginary = 2 * lastReal * zImaginary + cImaginary;
+            lastReal = zReal;
+            iteration++;
+            if (lastReal == checkReal && zImaginary == checkImaginary) {
+                return iterations;
+            }
+            if (++sinceCheck == checkInterval) {
+                checkReal = lastReal;
+                checkImaginary = zImaginary;
+                sinceCheck = 0;
+                checkInterval <<= 1;
+            }
+        }
+        return iterations;
+    }
+
+    public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer) {
+        computeIterations(originReal, originImaginary, pixelIncrement, width, height, iterationBuffer, 0, width);
+    }
+
+    @Override
+    public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline) {
+        for (int y = 0; y < height; y++) {
+            double cImaginary = originImaginary - y * pixelIncrement;
+            int rowOffset = offset + y * scanline;
+            if (vectorKernel && referenceKernel == null) {
+                if (floatPrecision) {
+                    VECTOR_KERNEL.computeRowFloat(originReal, cImaginary, pixelIncrement, width, iterations, interiorCheck, periodicityCheck, iterationBuffer, rowOffset);
+                } else {
+                    VECTOR_KERNEL.computeRow(originReal, cImaginary, pixelIncrement, width, iterations, interiorCheck, periodicityCheck, iterationBuffer, rowOffset);
+                }
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                iterationBuffer[rowOffset + x] = computeIterations(originReal + x * pixelIncrement, cImaginary);
+            }
+        }
+    }
+
+    @Override
     public int getIterations() {
         return iterations;
     }
 
+    @Override
     public void setIterations(int iterations) {
         this.iterations = iterations;
     }
 
+    // Douady and Hubbard: the Mandelbrot set and its complement are connected, and so is each area of the same dwell
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    public boolean isInteriorCheck() {
+        return interiorCheck;
+    }
+
+    public void setInteriorCheck(boolean interiorCheck) {
+        this.interiorCheck = interiorCheck;
+    }
+
+    public boolean isPeriodicityCheck() {
+        return periodicityCheck;
+    }
+
+    public void setPeriodicityCheck(boolean periodicityCheck) {
+        this.periodicityCheck = periodicityCheck;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        ReferenceKernel kernel = referenceKernel;
+        if (kernel != null) {
+            return kernel.getPrecision();
+        }
+        return floatPrecision ? Precision.FLOAT : Precision.DOUBLE;
+    }
+
+    /**
+     * @return the real part of the point the coordinates passed to {@link #computeIterations(double, double)} are
+     * relative to, zero unless a double-double or perturbation view is prepared
+     */
+    public BigDecimal getReferenceReal() {
+        ReferenceKernel kernel = referenceKernel;
+        return kernel == null ? BigDecimal.ZERO : kernel.getReferenceReal();
+    }
+
+    public BigDecimal getReferenceImaginary() {
+        ReferenceKernel kernel = referenceKernel;
+        return kernel == null ? BigDecimal.ZERO : kernel.getReferenceImaginary();
+    }
+
+    /**
+     * Switches between float and double precision for absolute coordinates, use {@link #prepareView} for the
+     * precisions that need a reference point.
+     */
+    public void setFloatPrecision(boolean floatPrecision) {
+        this.floatPrecision = floatPrecision;
+        this.referenceKernel = null;
+    }
+
+    public boolean isVectorKernel() {
+        return vectorKernel;
+    }
+
+    public void setVectorKernel(boolean vectorKernel) {
+        this.vectorKernel = vectorKernel && VECTOR_KERNEL != null;
+    }
+
     @Data
     public static class MandelbrotSetMembership {
         final boolean isMemberOfMandelbrotSet;
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import lombok.Data;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * A zoom from a start view towards a target center, rendered as a numbered sequence of frames. The zoom factor is the
+ * ratio of the pixel increment of the first frame to the one of the last frame, so factors below 1 zoom out.
+ * <p>
+ * The easing is applied to the zoom on a logarithmic scale: with {@link Easing#LINEAR} every frame zooms by the same
+ * factor. The center moves so that the target approaches the middle of the image at the pace of the zoom, i.e. it
+ * does not drift out of the view on the way.
+ */
+@Data
+public class AnimationJob {
+    public static final int DEFAULT_FRAMES = 100;
+    public static final double DEFAULT_ZOOM_FACTOR = 100d;
+
+    private final BigDecimal startCenterReal;
+    private final BigDecimal startCenterImaginary;
+    private final double startPixelIncrement;
+    private final BigDecimal targetCenterReal;
+    private final BigDecimal targetCenterImaginary;
+    private final double zoomFactor;
+    private final int frames;
+    private final Easing easing;
+    private final int width;
+    private final int height;
+    private final int iterations;
+    private final File outputDirectory;
+    private final FrameFormat format;
+
+    public void validate() {
+        if (frames < 1 || width < 1 || height < 1 || iterations < 1) {
+            throw new IllegalArgumentException("frames, width, height and iterations have to be positive");
+        }
+        if (!(zoomFactor > 0) || Double.isInfinite(zoomFactor) || !(startPixelIncrement > 0)) {
+            throw new IllegalArgumentException("the zoom factor and the increment have to be positive");
+        }
+    }
+
+    /**
+     * How far the zoom has progressed at the given frame, on a logarithmic scale from 0 at the first to 1 at the last frame.
+     */
+    public double getProgress(int frame) {
+        return frames == 1 ? 0 : easing.apply(frame / (double) (frames - 1));
+    }
+
+    public double getPixelIncrement(int frame) {
+        return startPixelIncrement * Math.pow(zoomFactor, -getProgress(frame));
+    }
+
+    public BigDecimal getCenterReal(int frame) {
+        return interpolate(startCenterReal, targetCenterReal, frame);
+    }
+
+    public BigDecimal getCenterImaginary(int frame) {
+        return interpolate(startCenterImaginary, targetCenterImaginary, frame);
+    }
+
+    /**
+     * The center has moved the same share of the way to the target as the pixel increment has changed towards the
+     * one of the last frame, which keeps the target within the view while zooming in.
+     */
+    private BigDecimal interpolate(BigDecimal start, BigDecimal target, int frame) {
+        double progress = getProgress(frame);
+        if (progress == 0) {
+            return start;
+        }
+        double fraction = zoomFactor == 1 ? progress : (1 - Math.pow(zoomFactor, -progress)) / (1 - 1 / zoomFactor);
+        return start.add(target.subtract(start).multiply(BigDecimal.valueOf(fraction)));
+    }
+
+    public File getOutput(int frame) {
+        return new File(outputDirectory, String.format(Locale.ROOT, "frame-%05d.%s", frame, format.getExtension()));
+    }
+
+    public enum Easing {
+        LINEAR, EASE_IN, EASE_OUT, EASE_IN_OUT;
+
+        public double apply(double t) {
+            switch (this) {
+                case LINEAR:
+                    return t;
+                case EASE_IN:
+                    return t * t;
+                case EASE_OUT:
+                    return t * (2 - t);
+                case EASE_IN_OUT:
+                    return t * t * (3 - 2 * t);
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        public static Easing parse(String easing) {
+            try {
+                return valueOf(easing.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown easing: '" + easing + "'");
+            }
+        }
+    }
+
+    /**
+     * Frames are written as png images or as raw rgb, three bytes per pixel, row by row and without any header,
+     * as read by e.g. {@code ffmpeg -f rawvideo -pixel_format rgb24 -video_size <width>x<height>}.
+     */
+    public enum FrameFormat {
+        PNG, RGB;
+
+        public String getExtension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static FrameFormat parse(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown frame format: '" + format + "'");
+            }
+        }
+    }
+}
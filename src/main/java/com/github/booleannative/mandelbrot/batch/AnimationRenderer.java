@@ -0,0 +1,287 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import com.github.booleannative.mandelbrot.plot.FrameBuffer;
+import com.github.booleannative.mandelbrot.plot.IterationCache;
+import com.github.booleannative.mandelbrot.plot.IterationField;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Renders an {@link AnimationJob} without opening any window. Computing the iterations, coloring and encoding run as
+ * stages on their own threads, connected by bounded queues: while a frame is being iterated, the frames before it are
+ * colored and written, and a stage only waits for the next one once a few frames are queued up.
+ * <p>
+ * Frames are seeded from earlier ones where the zoom permits: a frame takes each tile that is covered by a fully
+ * computed, finer frame from it, like the window does when zooming out. Zooming in, the frames are therefore computed
+ * from the last to the first. Seeded frames are never used for seeding, so the error of taking the nearest pixel of
+ * another frame does not add up. Instead, once the tiles a frame had to compute exceed the average number computed per
+ * frame since the last fully computed frame, the next frame is computed completely and seeds the following ones.
+ * Seeding can be switched off with the system property {@code disableFrameSeeding}, and is off while filled areas are
+ * marked for debugging.
+ */
+@Slf4j
+public class AnimationRenderer {
+    /**
+     * How many frames may wait for the next stage, before the stage before it waits.
+     */
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int DEFAULT_ENCODER_THREADS = 2;
+    /**
+     * How many of the fully computed frames are kept to seed the following ones.
+     */
+    private static final int KEYFRAMES = 4;
+    private static final long POLL_MILLIS = 100;
+    private static final Frame END = new Frame(-1, null, null);
+
+    private final IterationKernel kernel;
+    private final MandelbrotColorCalculator color;
+    private final MandelbrotPlotStrategy strategy;
+    @Setter
+    private int encoderThreads = Integer.getInteger("animationEncoderThreads", DEFAULT_ENCODER_THREADS);
+    @Setter
+    private boolean frameSeeding = System.getProperty("disableFrameSeeding") == null && !MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+    @Getter
+    private long seededTiles;
+    @Getter
+    private long totalTiles;
+
+    public AnimationRenderer() {
+        this(PlotStrategyType.RECTANGLES);
+    }
+
+    /**
+     * Renders on the background lane of the default {@link RenderExecutor}.
+     */
+    public AnimationRenderer(PlotStrategyType strategyType) {
+        this(new MandelbrotSet(), strategyType);
+    }
+
+    public AnimationRenderer(IterationKernel kernel, PlotStrategyType strategyType) {
+        this(kernel, iterationKernel -> strategyType.create(iterationKernel, RenderExecutor.getDefault().getBackground()));
+    }
+
+    public AnimationRenderer(Function<IterationKernel, MandelbrotPlotStrategy> strategyFactory) {
+        this(new MandelbrotSet(), strategyFactory);
+    }
+
+    public AnimationRenderer(IterationKernel kernel, Function<IterationKernel, MandelbrotPlotStrategy> strategyFactory) {
+        this.kernel = kernel;
+        this.color = new MandelbrotColorCalculator(kernel);
+        this.strategy = strategyFactory.apply(kernel);
+    }
+
+    public void render(AnimationJob job) throws IOException {
+        job.validate();
+        long startTime = System.currentTimeMillis();
+        long startSeededTiles = seededTiles;
+        long startTotalTiles = totalTiles;
+        Files.createDirectories(job.getOutputDirectory().toPath());
+        kernel.setIterations(job.getIterations());
+        BlockingQueue<Frame> computed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Frame> colored = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService stages = Executors.newFixedThreadPool(1 + encoderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mandelbrot-animation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> consumers = new ArrayList<>();
+            consumers.add(stages.submit(() -> runStage(failed, () -> color(computed, colored, failed))));
+            for (int i = 0; i < encoderThreads; i++) {
+                consumers.add(stages.submit(() -> runStage(failed, () -> encode(job, colored, failed))));
+            }
+            runStage(failed, () -> compute(job, computed, failed));
+            for (Future<?> consumer : consumers) {
+                consumer.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("rendering the animation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while rendering the animation", e);
+        } finally {
+            stages.shutdownNow();
+        }
+        long tiles = totalTiles - startTotalTiles;
+        log.info("rendered {} frames ({}x{}, iterations: {}) to {} in {}s, {} of {} tiles seeded from earlier frames", job.getFrames(),
+                job.getWidth(), job.getHeight(), job.getIterations(), job.getOutputDirectory(), (System.currentTimeMillis() - startTime) / 1000.0,
+                seededTiles - startSeededTiles, tiles);
+    }
+
+    /**
+     * Iterates the frames on the calling thread, the strategy itself computes each frame in parallel.
+     */
+    private void compute(AnimationJob job, BlockingQueue<Frame> computed, AtomicBoolean failed) throws InterruptedException {
+        int width = job.getWidth();
+        int height = job.getHeight();
+        int tiles = ((width + IterationCache.TILE_SIZE - 1) / IterationCache.TILE_SIZE) * ((height + IterationCache.TILE_SIZE - 1) / IterationCache.TILE_SIZE);
+        IterationCache keyframes = new IterationCache((long) KEYFRAMES * width * height * Integer.BYTES);
+        boolean reverse = job.getZoomFactor() > 1;
+        boolean keyframe = true;
+        int framesSinceKeyframe = 0;
+        long tilesComputedSinceKeyframe = 0;
+        for (int i = 0; i < job.getFrames(); i++) {
+            int frame = reverse ? job.getFrames() - 1 - i : i;
+            double pixelIncrement = job.getPixelIncrement(frame);
+            Complex center = kernel.prepareView(job.getCenterReal(frame), job.getCenterImaginary(frame), pixelIncrement, width, height);
+            Precision precision = kernel.getPrecision();
+            IterationField iterationField = new IterationField(center, pixelIncrement, width, height, job.getIterations());
+            if (frameSeeding && !keyframe) {
+                int seeded = keyframes.compute(iterationField, precision, strategy, failed::get);
+                seededTiles += seeded;
+                framesSinceKeyframe++;
+                tilesComputedSinceKeyframe += tiles - seeded;
+                keyframe = (long) (tiles - seeded) * framesSinceKeyframe > tilesComputedSinceKeyframe;
+            } else {
+                iterationField.compute(strategy, 0, 0, width, height, failed::get);
+                keyframes.put(iterationField, precision);
+                keyframe = false;
+                framesSinceKeyframe = 1;
+                tilesComputedSinceKeyframe = tiles;
+            }
+            totalTiles += tiles;
+            if (!put(computed, new Frame(frame, iterationField, null), failed)) {
+                return;
+            }
+        }
+        put(computed, END, failed);
+    }
+
+    private void color(BlockingQueue<Frame> computed, BlockingQueue<Frame> colored, AtomicBoolean failed) throws InterruptedException {
+        Frame frame;
+        while ((frame = take(computed, failed)) != null && frame != END) {
+            IterationField iterationField = frame.getIterationField();
+            FrameBuffer frameBuffer = new FrameBuffer(iterationField.getWidth(), iterationField.getHeight());
+            color.determineRGB(iterationField.getIterations(), 0, iterationField.getMaxIterations(), frameBuffer.getPixels(), 0, frameBuffer.getPixels().length);
+            if (!put(colored, new Frame(frame.getIndex(), null, frameBuffer), failed)) {
+                return;
+            }
+        }
+        for (int i = 0; frame == END && i < encoderThreads; i++) {
+            put(colored, END, failed);
+        }
+    }
+
+    private void encode(AnimationJob job, BlockingQueue<Frame> colored, AtomicBoolean failed) throws InterruptedException, IOException {
+        Frame frame;
+        while ((frame = take(colored, failed)) != null && frame != END) {
+            switch (job.getFormat()) {
+                case PNG:
+                    if (!ImageIO.write(frame.getFrameBuffer().getImage(), "png", job.getOutput(frame.getIndex()))) {
+                        throw new IOException("no png writer available");
+                    }
+                    break;
+                case RGB:
+                    int[] rgb = frame.getFrameBuffer().getPixels();
+                    byte[] bytes = new byte[rgb.length * 3];
+                    for (int i = 0; i < rgb.length; i++) {
+                        bytes[i * 3] = (byte) (rgb[i] >> 16);
+                        bytes[i * 3 + 1] = (byte) (rgb[i] >> 8);
+                        bytes[i * 3 + 2] = (byte) rgb[i];
+                    }
+                    Files.write(job.getOutput(frame.getIndex()).toPath(), bytes);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+            log.debug("wrote frame {}", frame.getIndex());
+        }
+    }
+
+    /**
+     * Runs a stage and makes the other stages stop if it fails.
+     */
+    private static Void runStage(AtomicBoolean failed, Stage stage) throws InterruptedException, IOException {
+        try {
+            stage.run();
+            return null;
+        } catch (CancellationException e) {
+            // another stage failed
+            return null;
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the queue to accept the frame.
+     *
+     * @return false if another stage failed meanwhile
+     */
+    private static boolean put(BlockingQueue<Frame> queue, Frame frame, AtomicBoolean failed) throws InterruptedException {
+        while (!queue.offer(frame, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failed.get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the next frame of the queue.
+     *
+     * @return null if another stage failed meanwhile
+     */
+    private static Frame take(BlockingQueue<Frame> queue, AtomicBoolean failed) throws InterruptedException {
+        Frame frame;
+        while ((frame = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            if (failed.get()) {
+                return null;
+            }
+        }
+        return frame;
+    }
+
+    private interface Stage {
+        void run() throws InterruptedException, IOException;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Frame {
+        private final int index;
+        private final IterationField iterationField;
+        private final FrameBuffer frameBuffer;
+    }
+}
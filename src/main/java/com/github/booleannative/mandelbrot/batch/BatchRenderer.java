@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.plot.FrameBuffer;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.ParallelPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Renders views to files without opening any window. A single instance can render many jobs,
+ * so JVM startup and JIT warm-up are only paid once.
+ * <p>
+ * Raw iteration dumps consist of the big-endian ints width, height and maximum number of iterations,
+ * followed by the number of iterations needed for each pixel, row by row.
+ */
+@Slf4j
+public class BatchRenderer {
+    private final IterationKernel kernel;
+    private final MandelbrotColorCalculator color;
+    private final MandelbrotPlotStrategy strategy;
+    // raw dumps contain the exact iterations of every pixel, so nothing is filled
+    private final MandelbrotPlotStrategy rawStrategy;
+
+    public BatchRenderer() {
+        this(PlotStrategyType.RECTANGLES);
+    }
+
+    /**
+     * Renders on the background lane of the default {@link RenderExecutor}, so a window in the same JVM stays responsive.
+     */
+    public BatchRenderer(PlotStrategyType strategyType) {
+        this(new MandelbrotSet(), strategyType);
+    }
+
+    public BatchRenderer(IterationKernel kernel, PlotStrategyType strategyType) {
+        this(kernel, iterationKernel -> strategyType.create(iterationKernel, RenderExecutor.getDefault().getBackground()));
+    }
+
+    public BatchRenderer(Function<IterationKernel, MandelbrotPlotStrategy> strategyFactory) {
+        this(new MandelbrotSet(), strategyFactory);
+    }
+
+    public BatchRenderer(IterationKernel kernel, Function<IterationKernel, MandelbrotPlotStrategy> strategyFactory) {
+        this.kernel = kernel;
+        this.color = new MandelbrotColorCalculator(kernel);
+        this.strategy = strategyFactory.apply(kernel);
+        this.rawStrategy = new ParallelPlotStrategy(kernel, RenderExecutor.getDefault().getBackground());
+    }
+
+    public static List<RenderJob> readJobs(File jobFile) throws IOException {
+        List<RenderJob> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(jobFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.isBlank() && !line.trim().startsWith("#")) {
+                jobs.add(RenderJob.parse(line));
+            }
+        }
+        return jobs;
+    }
+
+    public void render(List<RenderJob> jobs) throws IOException {
+        for (RenderJob job : jobs) {
+            render(job);
+        }
+    }
+
+    public void render(RenderJob job) throws IOException {
+        long startTime = System.currentTimeMillis();
+        kernel.setIterations(job.getIterations());
+        // selects the precision of the view, deep views are passed relative to the reference point of their kernel
+        Complex center = kernel.prepareView(job.getCenterReal(), job.getCenterImaginary(), job.getPixelIncrement(), job.getWidth(), job.getHeight());
+        switch (job.getFormat()) {
+            case PNG:
+                writePng(job, center);
+                break;
+            case RAW:
+                writeRaw(job, center);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+        log.info("rendered {} ({}x{}, increment: {} iterations: {} center: ({}, {}) precision: {}) in {}s", job.getOutput(), job.getWidth(), job.getHeight(),
+                job.getPixelIncrement(), job.getIterations(), job.getCenterReal(), job.getCenterImaginary(), kernel.getPrecision(), (System.currentTimeMillis() - startTime) / 1000.0);
+    }
+
+    private void writePng(RenderJob job, Complex center) throws IOException {
+        int width = job.getWidth();
+        int height = job.getHeight();
+        // iterated and colored in place, in the pixels of the image
+        FrameBuffer frameBuffer = new FrameBuffer(width, height);
+        int[] pixels = frameBuffer.getPixels();
+        strategy.computeIterations(center, width, height, job.getPixelIncrement(), pixels);
+        color.determineRGB(pixels, 0, job.getIterations(), pixels, 0, pixels.length);
+        if (!ImageIO.write(frameBuffer.getImage(), "png", job.getOutput())) {
+            throw new IOException("no png writer available");
+        }
+    }
+
+    private void writeRaw(RenderJob job, Complex center) throws IOException {
+        int width = job.getWidth();
+        int height = job.getHeight();
+        int[] iterations = new int[width * height];
+        rawStrategy.computeIterations(center, width, height, job.getPixelIncrement(), iterations);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(job.getOutput())))) {
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(job.getIterations());
+            for (int iterationsNeeded : iterations) {
+                out.writeInt(iterationsNeeded);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import lombok.Data;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+@Data
+public class RenderJob {
+    public static final double DEFAULT_CENTER_REAL = -0.5d;
+    public static final double DEFAULT_CENTER_IMAGINARY = 0d;
+    public static final double DEFAULT_PIXEL_INCREMENT = 0.004d;
+    public static final int DEFAULT_WIDTH = 750;
+    public static final int DEFAULT_HEIGHT = 500;
+    public static final int DEFAULT_ITERATIONS = 1000;
+
+    // exact, so deep views can be rendered with the precision they need
+    private final BigDecimal centerReal;
+    private final BigDecimal centerImaginary;
+    private final double pixelIncrement;
+    private final int width;
+    private final int height;
+    private final int iterations;
+    private final File output;
+    private final Format format;
+
+    /**
+     * Parses a job file line of the form
+     * {@code <center real> <center imaginary> <pixel increment> <width> <height> <iterations> <output> [png|raw]}.
+     * If the format is omitted, it is derived from the extension of the output file.
+     */
+    public static RenderJob parse(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 7 || fields.length > 8) {
+            throw new IllegalArgumentException("expected 7 or 8 fields but got " + fields.length + ": '" + line + "'");
+        }
+        File output = new File(fields[6]);
+        return new RenderJob(
+                new BigDecimal(fields[0]),
+                new BigDecimal(fields[1]),
+                Double.parseDouble(fields[2]),
+                Integer.parseInt(fields[3]),
+                Integer.parseInt(fields[4]),
+                Integer.parseInt(fields[5]),
+                output,
+                fields.length == 8 ? Format.parse(fields[7]) : Format.of(output));
+    }
+
+    public enum Format {
+        PNG, RAW;
+
+        public static Format parse(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown output format: '" + format + "'");
+            }
+        }
+
+        public static Format of(File output) {
+            return output.getName().toLowerCase(Locale.ROOT).endsWith(".raw") ? RAW : PNG;
+        }
+    }
+}
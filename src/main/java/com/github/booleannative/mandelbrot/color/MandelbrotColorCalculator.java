@@ -17,6 +17,7 @@
 package com.github.booleannative.mandelbrot.color;
 
 import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.complex.Complex;
@@ -26,56 +27,132 @@ import java.awt.*;
 @RequiredArgsConstructor
 @Slf4j
 public class MandelbrotColorCalculator implements MandelbrotCoordinateColorCalculator {
+    private static final int BLACK_RGB = Color.BLACK.getRGB();
+    private static final int PINK_RGB = Color.PINK.getRGB();
+    /**
+     * Marks pixels that were filled without iterating when the enclosed rectangle detection is debugged, they are painted pink.
+     */
+    public static final int ENCLOSED_DEBUG_ITERATIONS = -1;
     private float colorOffset = 0.4f;
     private float brightnessFactor =2.0f;
     private float saturation=0.4f;
     private float colorRange=0.5f;
-    private final MandelbrotSet mandelBrotSet;
+    /**
+     * The ARGB color of each number of iterations below the maximum, rebuilt whenever a color parameter or the maximum changes.
+     */
+    private volatile int[] palette = new int[0];
+    private final IterationKernel kernel;
 
     public Color determineColor(Complex current) {
-        return determineColor(mandelBrotSet.checkIsMemberOfMandelbrotSet(current));
+        return new Color(determineRGB(current.getReal(), current.getImaginary()));
     }
 
     public Color determineColor(MandelbrotSet.MandelbrotSetMembership mandelBrotSetMembership) {
-        if (mandelBrotSetMembership.isMemberOfMandelbrotSet()) {
-            return Color.BLACK;
+        return new Color(determineRGB(mandelBrotSetMembership.getIterationsNeeded(), mandelBrotSetMembership.getMaxIterations()));
+    }
+
+    @Override
+    public int determineRGB(double real, double imaginary) {
+        return determineRGB(kernel.computeIterations(real, imaginary), kernel.getIterations());
+    }
+
+    @Override
+    public void determineRGB(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] rgbBuffer, int offset, int scanline) {
+        kernel.computeIterations(originReal, originImaginary, pixelIncrement, width, height, rgbBuffer, offset, scanline);
+        int maxIterations = kernel.getIterations();
+        for (int y = 0; y < height; y++) {
+            int rowOffset = offset + y * scanline;
+            determineRGB(rgbBuffer, rowOffset, maxIterations, rgbBuffer, rowOffset, width);
+        }
+    }
+
+    /**
+     * Colors length iteration counts, as computed by an {@link IterationKernel}, without iterating again.
+     * The iteration field and the rgb buffer may be the same array.
+     */
+    public void determineRGB(int[] iterationField, int fieldOffset, int maxIterations, int[] rgbBuffer, int offset, int length) {
+        int[] colors = getPalette(maxIterations);
+        for (int i = 0; i < length; i++) {
+            int iterationsNeeded = iterationField[fieldOffset + i];
+            if (iterationsNeeded >= maxIterations) {
+                rgbBuffer[offset + i] = BLACK_RGB;
+            } else if (iterationsNeeded == ENCLOSED_DEBUG_ITERATIONS) {
+                rgbBuffer[offset + i] = PINK_RGB;
+            } else {
+                rgbBuffer[offset + i] = colors[iterationsNeeded];
+            }
+        }
+    }
+
+    public int determineRGB(int iterationsNeeded, int maxIterations) {
+        if (iterationsNeeded >= maxIterations) {
+            return BLACK_RGB;
         }
-        float colorFactor=1.0f-(float)(Math.log(mandelBrotSetMembership.getIterationsNeeded())/Math.log(mandelBrotSetMembership.getMaxIterations()));
-        return Color.getHSBColor(colorFactor*colorRange + colorOffset, saturation, 1 - (colorFactor / brightnessFactor));
+        return getPalette(maxIterations)[iterationsNeeded];
+    }
+
+    private int[] getPalette(int maxIterations) {
+        int[] current = palette;
+        if (current.length != maxIterations) {
+            current = buildPalette(maxIterations);
+            palette = current;
+        }
+        return current;
+    }
+
+    private int[] buildPalette(int maxIterations) {
+        int[] rgb = new int[maxIterations];
+        for (int iterationsNeeded = 0; iterationsNeeded < maxIterations; iterationsNeeded++) {
+            float colorFactor=1.0f-(float)(Math.log(iterationsNeeded)/Math.log(maxIterations));
+            rgb[iterationsNeeded] = Color.HSBtoRGB(colorFactor*colorRange + colorOffset, saturation, 1 - (colorFactor / brightnessFactor));
+        }
+        log.debug("palette built for {} iterations", maxIterations);
+        return rgb;
+    }
+
+    private void rebuildPalette() {
+        palette = buildPalette(palette.length);
     }
 
     public void shiftBaseColor() {
         colorOffset += 0.01;
+        rebuildPalette();
         log.info("colorShift to {}", colorOffset);
     }
 
     public void increaseBrightness(){
         brightnessFactor *=1.5f;
+        rebuildPalette();
         log.info("brightnessFactor = {}", brightnessFactor);
     }
 
     public void decreaseBrightness(){
         brightnessFactor *=0.75f;
+        rebuildPalette();
         log.info("brightnessFactor = {}", brightnessFactor);
     }
 
     public void increaseSaturation(){
         saturation+=0.1;
+        rebuildPalette();
         log.info("saturation = {}", saturation);
     }
 
     public void decreaseSaturation(){
         saturation-=0.1;
+        rebuildPalette();
         log.info("saturation = {}", saturation);
     }
 
     public void increaseColorRange(){
         colorRange+=0.1;
+        rebuildPalette();
         log.info("colorRange = {}", colorRange);
     }
 
     public void decreaseColorRange(){
         colorRange-=0.1;
+        rebuildPalette();
         log.info("colorRange = {}", colorRange);
     }
 
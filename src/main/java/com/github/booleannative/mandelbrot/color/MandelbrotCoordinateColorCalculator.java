@@ -17,14 +17,9 @@
 
 package com.github.booleannative.mandelbrot.color;
 
-import com.github.booleannative.mandelbrot.MandelbrotSet;
-import org.apache.commons.math3.complex.Complex;
-
-import java.awt.*;
-
 public interface MandelbrotCoordinateColorCalculator {
-    Color determineColor(Complex current);
+    int determineRGB(double real, double imaginary);
 
-    Color determineColor(MandelbrotSet.MandelbrotSetMembership mandelBrotSetMembership);
+    void determineRGB(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] rgbBuffer, int offset, int scanline);
 
 }
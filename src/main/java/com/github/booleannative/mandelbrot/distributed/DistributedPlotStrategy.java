@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.distributed;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Splits the view into tiles and lets {@link TileWorker}s compute them, one connection per worker.
+ * <p>
+ * Each worker is sent the next tile as soon as it returned the last one, so faster workers compute more tiles. A worker
+ * that fails or does not return a tile within the tile timeout is dropped and its tile is handed to the others. Once all
+ * tiles are handed out, idle workers compute a second copy of the tile that has been running for the longest, so a single
+ * slow worker does not delay the whole view. Whichever copy is returned first is used. Once the view is complete or
+ * cancelled, the connections are closed and results that still arrive are dropped.
+ * <p>
+ * Workers always compute the Mandelbrot set, only the maximum number of iterations and the precision are taken from the
+ * kernel. For double-double and perturbation views, the center passed to this strategy is relative to the reference
+ * point of the kernel, so the tiles are sent as absolute coordinates, i.e. with the reference point added.
+ */
+@Slf4j
+public class DistributedPlotStrategy implements MandelbrotPlotStrategy {
+    public static final int DEFAULT_TILE_SIZE = 128;
+    public static final int DEFAULT_TILE_TIMEOUT_MILLIS = 120_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int POLL_MILLIS = 10;
+    private final IterationKernel kernel;
+    private final List<InetSocketAddress> workers;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "tile-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Setter
+    private int tileSize = Integer.getInteger("distributedTileSize", DEFAULT_TILE_SIZE);
+    @Setter
+    private int tileTimeoutMillis = Integer.getInteger("distributedTileTimeout", DEFAULT_TILE_TIMEOUT_MILLIS);
+
+    public DistributedPlotStrategy(IterationKernel kernel, List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("no workers given");
+        }
+        this.kernel = kernel;
+        this.workers = List.copyOf(workers);
+    }
+
+    /**
+     * Parses a comma separated list of workers of the form {@code host:port}.
+     */
+    public static List<InetSocketAddress> parseWorkers(String workers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            int separator = worker.lastIndexOf(':');
+            try {
+                addresses.add(InetSocketAddress.createUnresolved(worker.substring(0, separator).trim(), Integer.parseInt(worker.substring(separator + 1).trim())));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid worker, expected host:port but got '" + worker + "'");
+            }
+        }
+        return addresses;
+    }
+
+    @Override
+    public void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        long startTime = System.currentTimeMillis();
+        Render render = new Render(iterationField, offset, scanline, createTiles(center, width, height, pixelIncrement));
+        List<Future<?>> workerConnections = new ArrayList<>();
+        for (InetSocketAddress worker : workers) {
+            workerConnections.add(connections.submit(() -> serve(worker, render)));
+        }
+        try {
+            while (!render.remainingTiles.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isCancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                if (render.activeWorkers.get() == 0) {
+                    throw new IllegalStateException("all workers failed, " + render.remainingTiles.getCount() + " of " + render.tiles.size() + " tiles are missing");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } finally {
+            render.close();
+            workerConnections.forEach(connection -> connection.cancel(true));
+        }
+        log.info("computed {} tiles on {} workers in {}s", render.tiles.size(), workers.size(), (System.currentTimeMillis() - startTime) / 1000.0);
+    }
+
+    private List<Tile> createTiles(Complex center, int width, int height, double pixelIncrement) {
+        // only the Mandelbrot set has views relative to a reference point
+        MandelbrotSet mandelbrotSet = kernel instanceof MandelbrotSet ? (MandelbrotSet) kernel : null;
+        BigDecimal referenceReal = mandelbrotSet == null ? BigDecimal.ZERO : mandelbrotSet.getReferenceReal();
+        BigDecimal referenceImaginary = mandelbrotSet == null ? BigDecimal.ZERO : mandelbrotSet.getReferenceImaginary();
+        BigDecimal topLeftReal = referenceReal.add(BigDecimal.valueOf(center.getReal())).subtract(BigDecimal.valueOf(width * pixelIncrement / 2d));
+        BigDecimal topLeftImaginary = referenceImaginary.add(BigDecimal.valueOf(center.getImaginary())).add(BigDecimal.valueOf(height * pixelIncrement / 2d));
+        List<Tile> tiles = new ArrayList<>();
+        for (int top = 0; top < height; top += tileSize) {
+            for (int left = 0; left < width; left += tileSize) {
+                int tileWidth = Math.min(tileSize, width - left);
+                int tileHeight = Math.min(tileSize, height - top);
+                TileRequest request = new TileRequest(tiles.size(),
+                        topLeftReal.add(BigDecimal.valueOf((left + tileWidth / 2d) * pixelIncrement)),
+                        topLeftImaginary.subtract(BigDecimal.valueOf((top + tileHeight / 2d) * pixelIncrement)),
+                        pixelIncrement, tileWidth, tileHeight, kernel.getIterations(), kernel.getPrecision());
+                tiles.add(new Tile(left, top, request));
+            }
+        }
+        return tiles;
+    }
+
+    private void serve(InetSocketAddress worker, Render render) {
+        Tile tile = null;
+        try (Socket socket = new Socket()) {
+            if (!render.register(socket)) {
+                return;
+            }
+            socket.connect(new InetSocketAddress(worker.getHostString(), worker.getPort()), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(tileTimeoutMillis);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while ((tile = render.nextTile()) != null) {
+                TileRequest request = tile.getRequest();
+                TileProtocol.writeRequest(out, request);
+                int[] iterations = new int[request.getWidth() * request.getHeight()];
+                int tileId = TileProtocol.readResult(in, iterations);
+                if (tileId != request.getTileId()) {
+                    throw new IOException("expected tile " + request.getTileId() + " but got " + tileId);
+                }
+                render.complete(tile, iterations);
+                tile = null;
+            }
+        } catch (IOException e) {
+            if (render.finished) {
+                log.debug("closed connection to worker {}: {}", worker, e.toString());
+            } else {
+                log.warn("dropping worker {}: {}", worker, e.toString());
+            }
+        } finally {
+            if (tile != null) {
+                render.reassign(tile);
+            }
+            render.activeWorkers.decrementAndGet();
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Tile {
+        private final int left;
+        private final int top;
+        private final TileRequest request;
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile long startTime;
+        private volatile boolean done;
+    }
+
+    private class Render {
+        private final int[] iterationField;
+        private final int offset;
+        private final int scanline;
+        private final List<Tile> tiles;
+        private final BlockingQueue<Tile> pendingTiles;
+        private final CountDownLatch remainingTiles;
+        private final AtomicInteger activeWorkers = new AtomicInteger(workers.size());
+        private final List<Socket> sockets = new ArrayList<>();
+        private volatile boolean finished;
+
+        Render(int[] iterationField, int offset, int scanline, List<Tile> tiles) {
+            this.iterationField = iterationField;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.tiles = tiles;
+            this.pendingTiles = new LinkedBlockingQueue<>(tiles);
+            this.remainingTiles = new CountDownLatch(tiles.size());
+        }
+
+        /**
+         * @return the next tile for a worker, or null once all tiles are done
+         */
+        Tile nextTile() {
+            while (!finished && remainingTiles.getCount() > 0) {
+                Tile tile = pendingTiles.poll();
+                if (tile == null) {
+                    tile = tiles.stream()
+                            .filter(running -> !running.isDone() && running.getRunning().get() == 1)
+                            .min(Comparator.comparingLong(Tile::getStartTime))
+                            .orElse(null);
+                    if (tile != null) {
+                        log.debug("computing a second copy of tile {}, running for {}s", tile.getRequest().getTileId(), (System.currentTimeMillis() - tile.getStartTime()) / 1000.0);
+                    }
+                }
+                if (tile != null && tile.getRunning().getAndIncrement() == 0) {
+                    tile.startTime = System.currentTimeMillis();
+                }
+                if (tile != null) {
+                    return tile;
+                }
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Keeps the socket of a worker connection, so it can be closed once the view is finished.
+         *
+         * @return false if the view is finished already and the worker is not needed anymore
+         */
+        synchronized boolean register(Socket socket) {
+            if (!finished) {
+                sockets.add(socket);
+            }
+            return !finished;
+        }
+
+        /**
+         * Finishes the view: closing the sockets ends the connections that wait for a worker, as a blocked read does not
+         * react to the interrupt of a cancelled connection. As this waits for a tile that is being copied, nothing is
+         * written into the iteration field afterwards.
+         */
+        synchronized void close() {
+            finished = true;
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    log.debug("closing connection to {} failed: {}", socket.getRemoteSocketAddress(), e.toString());
+                }
+            }
+        }
+
+        synchronized void complete(Tile tile, int[] iterations) {
+            tile.getRunning().decrementAndGet();
+            if (finished || tile.isDone()) {
+                return;
+            }
+            TileRequest request = tile.getRequest();
+            for (int y = 0; y < request.getHeight(); y++) {
+                System.arraycopy(iterations, y * request.getWidth(), iterationField, offset + (tile.getTop() + y) * scanline + tile.getLeft(), request.getWidth());
+            }
+            tile.done = true;
+            remainingTiles.countDown();
+        }
+
+        void reassign(Tile tile) {
+            if (tile.getRunning().decrementAndGet() == 0 && !tile.isDone()) {
+                pendingTiles.add(tile);
+            }
+        }
+    }
+}
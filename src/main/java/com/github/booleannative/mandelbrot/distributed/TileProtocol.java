@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.distributed;
+
+import com.github.booleannative.mandelbrot.kernel.Precision;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The messages exchanged between coordinator and workers. A request consists of the tile id, the center as decimal
+ * strings, the pixel increment, width, height, maximum number of iterations and the name of the precision. The
+ * response repeats the tile id,
+ * followed by the length of the deflated iteration counts and the deflated big-endian iteration counts, row by row.
+ * As neighbouring pixels mostly need the same number of iterations, deflating shrinks the tiles considerably.
+ * <p>
+ * Sizes read from the network are checked before anything is allocated for them.
+ */
+final class TileProtocol {
+    /**
+     * The largest number of pixels of a tile, a tile of 4096x4096 pixels.
+     */
+    static final int MAX_TILE_PIXELS = 1 << 24;
+    // deflating incompressible data adds a few bytes per block of 16 KiB
+    private static final int MAX_DEFLATE_OVERHEAD = 1024;
+
+    private TileProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, TileRequest request) throws IOException {
+        out.writeInt(request.getTileId());
+        out.writeUTF(request.getCenterReal().toString());
+        out.writeUTF(request.getCenterImaginary().toString());
+        out.writeDouble(request.getPixelIncrement());
+        out.writeInt(request.getWidth());
+        out.writeInt(request.getHeight());
+        out.writeInt(request.getIterations());
+        out.writeUTF(request.getPrecision().name());
+        out.flush();
+    }
+
+    static TileRequest readRequest(DataInputStream in) throws IOException {
+        int tileId = in.readInt();
+        try {
+            TileRequest request = new TileRequest(tileId, new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()), in.readDouble(), in.readInt(), in.readInt(), in.readInt(),
+                    Precision.valueOf(in.readUTF()));
+            if (request.getWidth() < 1 || request.getHeight() < 1 || (long) request.getWidth() * request.getHeight() > MAX_TILE_PIXELS) {
+                throw new IOException("invalid size of tile " + tileId + ": " + request.getWidth() + "x" + request.getHeight());
+            }
+            if (request.getIterations() < 1) {
+                throw new IOException("invalid maximum number of iterations of tile " + tileId + ": " + request.getIterations());
+            }
+            return request;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("invalid request for tile " + tileId, e);
+        }
+    }
+
+    static void writeResult(DataOutputStream out, int tileId, int[] iterations) throws IOException {
+        byte[] bytes = new byte[iterations.length * Integer.BYTES];
+        for (int i = 0; i < iterations.length; i++) {
+            bytes[i * 4] = (byte) (iterations[i] >>> 24);
+            bytes[i * 4 + 1] = (byte) (iterations[i] >>> 16);
+            bytes[i * 4 + 2] = (byte) (iterations[i] >>> 8);
+            bytes[i * 4 + 3] = (byte) iterations[i];
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length / 8 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            deflated.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        out.writeInt(tileId);
+        out.writeInt(deflated.size());
+        deflated.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * @return the id of the tile, its iteration counts are read into the given array
+     */
+    static int readResult(DataInputStream in, int[] iterations) throws IOException {
+        int tileId = in.readInt();
+        byte[] bytes = new byte[iterations.length * Integer.BYTES];
+        int deflatedLength = in.readInt();
+        if (deflatedLength < 0 || deflatedLength > bytes.length + MAX_DEFLATE_OVERHEAD) {
+            throw new IOException("invalid length of tile " + tileId + ": " + deflatedLength + " bytes");
+        }
+        byte[] deflated = new byte[deflatedLength];
+        in.readFully(deflated);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != bytes.length) {
+                throw new IOException("expected " + bytes.length + " bytes of tile " + tileId + " but got " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt result of tile " + tileId, e);
+        } finally {
+            inflater.end();
+        }
+        for (int i = 0; i < iterations.length; i++) {
+            iterations[i] = (bytes[i * 4] << 24) | ((bytes[i * 4 + 1] & 0xff) << 16) | ((bytes[i * 4 + 2] & 0xff) << 8) | (bytes[i * 4 + 3] & 0xff);
+        }
+        return tileId;
+    }
+}
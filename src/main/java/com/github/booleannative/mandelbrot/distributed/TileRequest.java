@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.distributed;
+
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * A tile a coordinator asks a worker to compute. The tile is a view of its own, centered on the center of the tile.
+ * It is computed with the precision of the whole view, so it matches the tiles around it and a local render.
+ */
+@Data
+public class TileRequest {
+    private final int tileId;
+    private final BigDecimal centerReal;
+    private final BigDecimal centerImaginary;
+    private final double pixelIncrement;
+    private final int width;
+    private final int height;
+    private final int iterations;
+    private final Precision precision;
+}
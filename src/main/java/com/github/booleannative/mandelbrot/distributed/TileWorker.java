@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.distributed;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Computes the tiles requested by coordinators. Every connection is served by a thread of its own with its own
+ * {@link MandelbrotSet}, the tiles are computed with the given plot strategy and the precision the coordinator asks for.
+ */
+@Slf4j
+public class TileWorker implements Closeable {
+    private final PlotStrategyType strategyType;
+    private final ServerSocket serverSocket;
+
+    public TileWorker(PlotStrategyType strategyType, int port) throws IOException {
+        this.strategyType = strategyType;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        Thread acceptor = new Thread(this::accept, "tile-worker-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("tile worker listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "tile-worker-" + socket.getRemoteSocketAddress());
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("accepting a coordinator failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        // coordinators render batches, a window in the same JVM goes first
+        MandelbrotPlotStrategy strategy = strategyType.create(mandelbrotSet, RenderExecutor.getDefault().getBackground());
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                TileRequest request;
+                try {
+                    request = TileProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                long startTime = System.currentTimeMillis();
+                mandelbrotSet.setIterations(request.getIterations());
+                Complex center = mandelbrotSet.prepareView(request.getCenterReal(), request.getCenterImaginary(), request.getPixelIncrement(), request.getPrecision());
+                int[] iterations = new int[request.getWidth() * request.getHeight()];
+                strategy.computeIterations(center, request.getWidth(), request.getHeight(), request.getPixelIncrement(), iterations);
+                TileProtocol.writeResult(out, request.getTileId(), iterations);
+                log.debug("computed tile {} ({}x{}) in {}s", request.getTileId(), request.getWidth(), request.getHeight(), (System.currentTimeMillis() - startTime) / 1000.0);
+            }
+        } catch (SocketException e) {
+            log.debug("coordinator {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("serving coordinator {} failed", socket.getRemoteSocketAddress(), e);
+        }
+    }
+}
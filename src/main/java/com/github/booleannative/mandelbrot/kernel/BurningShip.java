@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+/**
+ * The burning ship fractal: like the Mandelbrot set, but the real and imaginary part of z are made positive before
+ * squaring, i.e. z = (|Re z| + i|Im z|)^2 + c. The ship lies upside down in the usual orientation of the imaginary axis.
+ * On the real axis, the orbits are the ones of the Mandelbrot set.
+ */
+public final class BurningShip extends DoublePrecisionKernel {
+    private static final double BAILOUT = 4d;
+
+    // the absolute values break the set into parts that are not connected to the ship
+    @Override
+    public boolean isConnected() {
+        return false;
+    }
+
+    @Override
+    public int computeIterations(double cReal, double cImaginary) {
+        return iterate(cReal, cImaginary);
+    }
+
+    @Override
+    public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline) {
+        for (int y = 0; y < height; y++) {
+            double cImaginary = originImaginary - y * pixelIncrement;
+            int rowOffset = offset + y * scanline;
+            for (int x = 0; x < width; x++) {
+                iterationBuffer[rowOffset + x] = iterate(originReal + x * pixelIncrement, cImaginary);
+            }
+        }
+    }
+
+    private int iterate(double cReal, double cImaginary) {
+        double zReal = 0d;
+        double zImaginary = 0d;
+        double checkReal = 0d;
+        double checkImaginary = 0d;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double realSquared = zReal * zReal;
+            double imaginarySquared = zImaginary * zImaginary;
+            if (realSquared + imaginarySquared > BAILOUT) {
+                return iteration;
+            }
+            zImaginary = Math.abs(2 * zReal * zImaginary) + cImaginary;
+            zReal = realSquared - imaginarySquared + cReal;
+            if (periodicityCheck) {
+                if (zReal == checkReal && zImaginary == checkImaginary) {
+                    return iterations;
+                }
+                if (++sinceCheck == checkInterval) {
+                    checkReal = zReal;
+                    checkImaginary = zImaginary;
+                    sinceCheck = 0;
+                    checkInterval <<= 1;
+                }
+            }
+        }
+        return iterations;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import lombok.Getter;
+
+/**
+ * Iterates z^2 + c in double precision together with its derivatives, to estimate how far a point is from the boundary
+ * of the Mandelbrot set. The number of iterations is the one {@link MandelbrotSet}
+ * computes in double precision, the distance is a lower bound: the disc of that radius around the point lies entirely
+ * outside of the set if the point escaped, and entirely inside of it otherwise.
+ * <p>
+ * Outside of the set, the orbit is iterated a few more times after escaping and the distance is |z| ln|z| / 2|dz/dc|,
+ * a quarter of the usual estimate. Inside of the set, the interior estimate is derived from the first and second
+ * derivatives of the attracting cycle and quartered alike. In the main cardioid and the period-2 bulb, the cycle is
+ * solved directly, as orbits converge slowly near their boundaries. Elsewhere, the period of the cycle the orbit
+ * converged to is detected and its point is refined with Newton's method. Orbits that have not converged closely
+ * enough after all iterations get no distance.
+ * <p>
+ * Not thread-safe, each thread needs an estimator of its own.
+ */
+public final class DistanceEstimator {
+    // the estimate is only accurate once |z| is much larger than the escape radius of 2 the iterations are counted with
+    private static final double ESTIMATE_RADIUS_SQUARED = 1e6d;
+    private static final int MAX_ESTIMATE_ITERATIONS = 64;
+    private static final double PERIOD_TOLERANCE_SQUARED = 1e-20d;
+    private static final int MAX_PERIOD = 1024;
+    private static final int NEWTON_STEPS = 8;
+    private static final double NEWTON_TOLERANCE_SQUARED = 1e-30d;
+
+    /**
+     * The lower bound of the distance of the last point to the boundary of the set, 0 if none could be estimated.
+     */
+    @Getter
+    private double distance;
+    private double zReal;
+    private double zImaginary;
+
+    /**
+     * @return the number of iterations needed to escape, or iterations if the point is a member of the set
+     */
+    public int estimate(double cReal, double cImaginary, int iterations) {
+        distance = 0d;
+        if (MandelbrotSet.isInMainCardioid(cReal, cImaginary)) {
+            // the fixed point (1 - sqrt(1 - 4c)) / 2
+            sqrt(1d - 4 * cReal, -4 * cImaginary);
+            distance = cycleDistance(cReal, cImaginary, (1d - zReal) / 2, -zImaginary / 2, 1);
+            return iterations;
+        }
+        if (MandelbrotSet.isInPeriod2Bulb(cReal, cImaginary)) {
+            // a point of the 2-cycle, a root of w^2 + w + c + 1
+            sqrt(-3d - 4 * cReal, -4 * cImaginary);
+            distance = cycleDistance(cReal, cImaginary, (zReal - 1d) / 2, zImaginary / 2, 2);
+            return iterations;
+        }
+        int escaped = iterateExterior(cReal, cImaginary, iterations);
+        if (escaped == iterations) {
+            distance = interiorDistance(cReal, cImaginary, iterations);
+        }
+        return escaped;
+    }
+
+    /**
+     * The loop of {@link MandelbrotSet} in the same order of operations, with Brent's
+     * cycle detection, and the derivative dz/dc alongside.
+     */
+    private int iterateExterior(double cReal, double cImaginary, int iterations) {
+        int iteration = 0;
+        double lastReal = 0d;
+        double imaginary = 0d;
+        double derivativeReal = 0d;
+        double derivativeImaginary = 0d;
+        double checkReal = 0d;
+        double checkImaginary = 0d;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        while (iteration < iterations) {
+            double nextDerivativeReal = 2 * (lastReal * derivativeReal - imaginary * derivativeImaginary) + 1;
+            derivativeImaginary = 2 * (lastReal * derivativeImaginary + imaginary * derivativeReal);
+            derivativeReal = nextDerivativeReal;
+            double real = lastReal * lastReal - imaginary * imaginary + cReal;
+            imaginary = 2 * lastReal * imaginary + cImaginary;
+            lastReal = real;
+            if (real < -2d || real > 2d) {
+                distance = exteriorDistance(cReal, cImaginary, real, imaginary, derivativeReal, derivativeImaginary);
+                return iteration;
+            }
+            iteration++;
+            if (lastReal == checkReal && imaginary == checkImaginary) {
+                break;
+            }
+            if (++sinceCheck == checkInterval) {
+                checkReal = lastReal;
+                checkImaginary = imaginary;
+                sinceCheck = 0;
+                checkInterval <<= 1;
+            }
+        }
+        zReal = lastReal;
+        zImaginary = imaginary;
+        return iterations;
+    }
+
+    private static double exteriorDistance(double cReal, double cImaginary, double real, double imaginary, double derivativeReal, double derivativeImaginary) {
+        for (int i = 0; i < MAX_ESTIMATE_ITERATIONS && real * real + imaginary * imaginary < ESTIMATE_RADIUS_SQUARED; i++) {
+            double nextDerivativeReal = 2 * (real * derivativeReal - imaginary * derivativeImaginary) + 1;
+            derivativeImaginary = 2 * (real * derivativeImaginary + imaginary * derivativeReal);
+            derivativeReal = nextDerivativeReal;
+            double nextReal = real * real - imaginary * imaginary + cReal;
+            imaginary = 2 * real * imaginary + cImaginary;
+            real = nextReal;
+        }
+        double modulusSquared = real * real + imaginary * imaginary;
+        double derivativeModulus = Math.sqrt(derivativeReal * derivativeReal + derivativeImaginary * derivativeImaginary);
+        if (!(derivativeModulus > 0) || Double.isInfinite(modulusSquared)) {
+            return 0d;
+        }
+        // |z| ln|z| / 2|dz|, with ln|z| = ln(|z|^2) / 2
+        return Math.sqrt(modulusSquared) * Math.log(modulusSquared) / (4 * derivativeModulus);
+    }
+
+    private double interiorDistance(double cReal, double cImaginary, int iterations) {
+        int period = detectPeriod(cReal, cImaginary, iterations);
+        if (period == 0) {
+            return 0d;
+        }
+        // Newton's method for f^p(w) = w, starting at the last point of the orbit
+        double wReal = zReal;
+        double wImaginary = zImaginary;
+        for (int step = 0; step < NEWTON_STEPS; step++) {
+            double real = wReal;
+            double imaginary = wImaginary;
+            double derivativeReal = 1d;
+            double derivativeImaginary = 0d;
+            for (int i = 0; i < period; i++) {
+                double nextDerivativeReal = 2 * (real * derivativeReal - imaginary * derivativeImaginary);
+                derivativeImaginary = 2 * (real * derivativeImaginary + imaginary * derivativeReal);
+                derivativeReal = nextDerivativeReal;
+                double nextReal = real * real - imaginary * imaginary + cReal;
+                imaginary = 2 * real * imaginary + cImaginary;
+                real = nextReal;
+            }
+            // w -= (f^p(w) - w) / (f^p'(w) - 1)
+            double numeratorReal = real - wReal;
+            double numeratorImaginary = imaginary - wImaginary;
+            double denominatorReal = derivativeReal - 1d;
+            double denominatorImaginary = derivativeImaginary;
+            double denominator = denominatorReal * denominatorReal + denominatorImaginary * denominatorImaginary;
+            if (!(denominator > 0)) {
+                break;
+            }
+            double stepReal = (numeratorReal * denominatorReal + numeratorImaginary * denominatorImaginary) / denominator;
+            double stepImaginary = (numeratorImaginary * denominatorReal - numeratorReal * denominatorImaginary) / denominator;
+            wReal -= stepReal;
+            wImaginary -= stepImaginary;
+            if (stepReal * stepReal + stepImaginary * stepImaginary < NEWTON_TOLERANCE_SQUARED) {
+                break;
+            }
+        }
+        return cycleDistance(cReal, cImaginary, wReal, wImaginary, period);
+    }
+
+    /**
+     * The interior distance of c from a point w of its cycle of the given period, 0 if the cycle is not attracting.
+     */
+    private static double cycleDistance(double cReal, double cImaginary, double wReal, double wImaginary, int period) {
+        // first and second derivatives of f^p by z and c at the point of the cycle
+        double real = wReal;
+        double imaginary = wImaginary;
+        double dzReal = 1d;
+        double dzImaginary = 0d;
+        double dcReal = 0d;
+        double dcImaginary = 0d;
+        double dzdzReal = 0d;
+        double dzdzImaginary = 0d;
+        double dcdzReal = 0d;
+        double dcdzImaginary = 0d;
+        for (int i = 0; i < period; i++) {
+            double nextDcdzReal = 2 * (real * dcdzReal - imaginary * dcdzImaginary + dcReal * dzReal - dcImaginary * dzImaginary);
+            double nextDcdzImaginary = 2 * (real * dcdzImaginary + imaginary * dcdzReal + dcReal * dzImaginary + dcImaginary * dzReal);
+            double nextDzdzReal = 2 * (real * dzdzReal - imaginary * dzdzImaginary + dzReal * dzReal - dzImaginary * dzImaginary);
+            double nextDzdzImaginary = 2 * (real * dzdzImaginary + imaginary * dzdzReal + 2 * dzReal * dzImaginary);
+            double nextDcReal = 2 * (real * dcReal - imaginary * dcImaginary) + 1;
+            double nextDcImaginary = 2 * (real * dcImaginary + imaginary * dcReal);
+            double nextDzReal = 2 * (real * dzReal - imaginary * dzImaginary);
+            double nextDzImaginary = 2 * (real * dzImaginary + imaginary * dzReal);
+            double nextReal = real * real - imaginary * imaginary + cReal;
+            imaginary = 2 * real * imaginary + cImaginary;
+            real = nextReal;
+            dcdzReal = nextDcdzReal;
+            dcdzImaginary = nextDcdzImaginary;
+            dzdzReal = nextDzdzReal;
+            dzdzImaginary = nextDzdzImaginary;
+            dcReal = nextDcReal;
+            dcImaginary = nextDcImaginary;
+            dzReal = nextDzReal;
+            dzImaginary = nextDzImaginary;
+        }
+        double multiplierSquared = dzReal * dzReal + dzImaginary * dzImaginary;
+        if (!(multiplierSquared < 1d)) {
+            return 0d;
+        }
+        // dcdz + dzdz * dc / (1 - dz)
+        double oneMinusReal = 1d - dzReal;
+        double oneMinusImaginary = -dzImaginary;
+        double oneMinus = oneMinusReal * oneMinusReal + oneMinusImaginary * oneMinusImaginary;
+        double productReal = dzdzReal * dcReal - dzdzImaginary * dcImaginary;
+        double productImaginary = dzdzReal * dcImaginary + dzdzImaginary * dcReal;
+        double quotientReal = (productReal * oneMinusReal + productImaginary * oneMinusImaginary) / oneMinus;
+        double quotientImaginary = (productImaginary * oneMinusReal - productReal * oneMinusImaginary) / oneMinus;
+        double denominator = Math.hypot(dcdzReal + quotientReal, dcdzImaginary + quotientImaginary);
+        if (!(denominator > 0)) {
+            return 0d;
+        }
+        return (1d - multiplierSquared) / (4 * denominator);
+    }
+
+    /**
+     * Stores the principal square root of the given number as z.
+     */
+    private void sqrt(double real, double imaginary) {
+        double modulus = Math.hypot(real, imaginary);
+        zReal = Math.sqrt((modulus + real) / 2);
+        zImaginary = Math.copySign(Math.sqrt((modulus - real) / 2), imaginary);
+    }
+
+    /**
+     * @return the smallest period after which the orbit returns close to its last point, 0 if there is none
+     */
+    private int detectPeriod(double cReal, double cImaginary, int iterations) {
+        double real = zReal;
+        double imaginary = zImaginary;
+        for (int period = 1; period <= Math.min(MAX_PERIOD, iterations); period++) {
+            double nextReal = real * real - imaginary * imaginary + cReal;
+            imaginary = 2 * real * imaginary + cImaginary;
+            real = nextReal;
+            double differenceReal = real - zReal;
+            double differenceImaginary = imaginary - zImaginary;
+            if (differenceReal * differenceReal + differenceImaginary * differenceImaginary < PERIOD_TOLERANCE_SQUARED) {
+                return period;
+            }
+        }
+        return 0;
+    }
+}
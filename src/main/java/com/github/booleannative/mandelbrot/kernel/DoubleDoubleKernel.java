@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import java.math.BigDecimal;
+
+/**
+ * Iterates in double-double arithmetic, i.e. each number is the unevaluated sum of a high and a low double, which gives
+ * about 32 significant digits. Every point is iterated on its own, so unlike the perturbation kernel there is no
+ * reference orbit that could cause glitches, but each operation costs several double operations.
+ * <p>
+ * The points are passed as double offsets to the reference point, they are added to it in double-double precision.
+ */
+public class DoubleDoubleKernel implements ReferenceKernel {
+    private final BigDecimal referenceReal;
+    private final BigDecimal referenceImaginary;
+    private final double pixelIncrement;
+    private final double referenceRealHigh;
+    private final double referenceRealLow;
+    private final double referenceImaginaryHigh;
+    private final double referenceImaginaryLow;
+
+    public DoubleDoubleKernel(BigDecimal referenceReal, BigDecimal referenceImaginary, double pixelIncrement) {
+        this.referenceReal = referenceReal;
+        this.referenceImaginary = referenceImaginary;
+        this.pixelIncrement = pixelIncrement;
+        referenceRealHigh = referenceReal.doubleValue();
+        referenceRealLow = referenceReal.subtract(new BigDecimal(referenceRealHigh)).doubleValue();
+        referenceImaginaryHigh = referenceImaginary.doubleValue();
+        referenceImaginaryLow = referenceImaginary.subtract(new BigDecimal(referenceImaginaryHigh)).doubleValue();
+    }
+
+    @Override
+    public int computeIterations(double deltaReal, double deltaImaginary, int iterations) {
+        // c = reference + delta, each a two sum followed by a renormalization
+        double sum = referenceRealHigh + deltaReal;
+        double virtual = sum - referenceRealHigh;
+        double error = (referenceRealHigh - (sum - virtual)) + (deltaReal - virtual) + referenceRealLow;
+        double cRealHigh = sum + error;
+        double cRealLow = error - (cRealHigh - sum);
+        sum = referenceImaginaryHigh + deltaImaginary;
+        virtual = sum - referenceImaginaryHigh;
+        error = (referenceImaginaryHigh - (sum - virtual)) + (deltaImaginary - virtual) + referenceImaginaryLow;
+        double cImaginaryHigh = sum + error;
+        double cImaginaryLow = error - (cImaginaryHigh - sum);
+
+        double zRealHigh = 0d;
+        double zRealLow = 0d;
+        double zImaginaryHigh = 0d;
+        double zImaginaryLow = 0d;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            // zReal^2 and zImaginary^2, exact products of the high parts plus the cross terms
+            double realSquareHigh = zRealHigh * zRealHigh;
+            double realSquareLow = Math.fma(zRealHigh, zRealHigh, -realSquareHigh) + 2 * zRealHigh * zRealLow;
+            double imaginarySquareHigh = zImaginaryHigh * zImaginaryHigh;
+            double imaginarySquareLow = Math.fma(zImaginaryHigh, zImaginaryHigh, -imaginarySquareHigh) + 2 * zImaginaryHigh * zImaginaryLow;
+            // 2 * zReal * zImaginary
+            double productHigh = 2 * zRealHigh * zImaginaryHigh;
+            double productLow = Math.fma(2 * zRealHigh, zImaginaryHigh, -productHigh) + 2 * (zRealHigh * zImaginaryLow + zRealLow * zImaginaryHigh);
+
+            // zReal = realSquare - imaginarySquare + cReal
+            sum = realSquareHigh - imaginarySquareHigh;
+            virtual = sum - realSquareHigh;
+            error = (realSquareHigh - (sum - virtual)) + (-imaginarySquareHigh - virtual) + realSquareLow - imaginarySquareLow;
+            double high = sum + error;
+            double low = error - (high - sum);
+            sum = high + cRealHigh;
+            virtual = sum - high;
+            error = (high - (sum - virtual)) + (cRealHigh - virtual) + low + cRealLow;
+            double nextRealHigh = sum + error;
+            if (nextRealHigh < -2d || nextRealHigh > 2d) {
+                return iteration;
+            }
+            zRealLow = error - (nextRealHigh - sum);
+            zRealHigh = nextRealHigh;
+
+            // zImaginary = product + cImaginary
+            sum = productHigh + cImaginaryHigh;
+            virtual = sum - productHigh;
+            error = (productHigh - (sum - virtual)) + (cImaginaryHigh - virtual) + productLow + cImaginaryLow;
+            zImaginaryHigh = sum + error;
+            zImaginaryLow = error - (zImaginaryHigh - sum);
+        }
+        return iterations;
+    }
+
+    @Override
+    public boolean isComputedFor(double pixelIncrement, int iterations) {
+        return this.pixelIncrement == pixelIncrement;
+    }
+
+    @Override
+    public BigDecimal getReferenceReal() {
+        return referenceReal;
+    }
+
+    @Override
+    public BigDecimal getReferenceImaginary() {
+        return referenceImaginary;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE_DOUBLE;
+    }
+}
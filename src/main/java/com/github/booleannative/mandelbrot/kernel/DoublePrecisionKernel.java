@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.math3.complex.Complex;
+
+import java.math.BigDecimal;
+
+/**
+ * The common part of the kernels that always iterate in double precision. Views below the resolution of double
+ * coordinates are rendered anyway, neighbouring pixels then collapse to the same value.
+ * <p>
+ * Subclasses iterate with Brent's cycle detection unless the system property {@code disablePeriodicityCheck} is set,
+ * like {@link com.github.booleannative.mandelbrot.MandelbrotSet}: once z hits a remembered value exactly, the orbit
+ * repeats forever and never escapes.
+ */
+public abstract class DoublePrecisionKernel implements IterationKernel {
+    @Getter
+    @Setter
+    protected int iterations = 1000;
+    @Getter
+    @Setter
+    protected boolean periodicityCheck = System.getProperty("disablePeriodicityCheck") == null;
+
+    @Override
+    public Complex prepareView(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height) {
+        return new Complex(centerReal.doubleValue(), centerImaginary.doubleValue());
+    }
+
+    @Override
+    public Precision selectPrecision(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height) {
+        return Precision.DOUBLE;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+}
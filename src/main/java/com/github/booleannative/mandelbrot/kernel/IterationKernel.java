@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import org.apache.commons.math3.complex.Complex;
+
+import java.math.BigDecimal;
+
+/**
+ * An escape time fractal: the number of iterations each point of the complex plane needs to escape.
+ * <p>
+ * The plot strategies and the renderers only know this interface. To keep the iteration loops monomorphic, kernels
+ * compute a whole rectangle of points per call and iterate each point in a private loop of their own, so the JIT
+ * inlines it into the rectangle loop. The call through this interface is made once per row, column or tile, never per
+ * iteration. Boundary tracing is the exception: it follows the contours pixel by pixel and calls
+ * {@link #computeIterations(double, double)} for every pixel it computes, which costs an interface call per pixel on
+ * top of the iterations of that pixel. Implementations are not thread-safe while a view is prepared, but may be used by several threads to
+ * compute the points of a prepared view.
+ */
+public interface IterationKernel {
+    /**
+     * @return the maximum number of iterations, points that need as many are members of the set
+     */
+    int getIterations();
+
+    void setIterations(int iterations);
+
+    /**
+     * @return whether the set and the areas of points that need the same number of iterations are connected. Only then
+     * do the strategies that fill the inside of a uniform border or contour without iterating it render it correctly.
+     */
+    boolean isConnected();
+
+    /**
+     * Selects the precision of the given view and prepares the kernel for it.
+     *
+     * @return the center in the coordinates passed to {@link #computeIterations(double, double)}
+     */
+    Complex prepareView(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height);
+
+    /**
+     * @return the precision {@link #prepareView} selects for the given view, without preparing it
+     */
+    Precision selectPrecision(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height);
+
+    /**
+     * @return the precision of the view prepared last
+     */
+    Precision getPrecision();
+
+    /**
+     * @return the number of iterations needed to escape, or {@link #getIterations()} if the point is a member of the set
+     */
+    int computeIterations(double cReal, double cImaginary);
+
+    /**
+     * Fills the iteration counts of a width x height grid of points into the given buffer, row by row.
+     * The origin is the top left point of the grid: the real part grows with each column, the imaginary part
+     * shrinks with each row, matching screen coordinates.
+     */
+    void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline);
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import lombok.Getter;
+
+/**
+ * The filled Julia set of z^2 + c for a fixed c: every point is the start of an orbit, instead of the constant as in
+ * the Mandelbrot set. The orbit of 0 is the one of c in the Mandelbrot set, and the set is connected exactly if that
+ * orbit stays bounded, i.e. if c is a member of the Mandelbrot set. Otherwise it is a dust of disconnected points.
+ */
+@Getter
+public final class JuliaSet extends DoublePrecisionKernel {
+    /**
+     * The Douady rabbit, c lies inside of the period 3 bulb of the Mandelbrot set.
+     */
+    public static final double DEFAULT_CONSTANT_REAL = -0.123d;
+    public static final double DEFAULT_CONSTANT_IMAGINARY = 0.745d;
+    // orbits of 0 that stay bounded for as many iterations are taken as bounded for good
+    private static final int CONNECTEDNESS_ITERATIONS = 100000;
+    private final double constantReal;
+    private final double constantImaginary;
+    /**
+     * Orbits outside of the larger of 2 and |c| escape, squared.
+     */
+    private final double bailout;
+    private final boolean connected;
+
+    public JuliaSet(double constantReal, double constantImaginary) {
+        this.constantReal = constantReal;
+        this.constantImaginary = constantImaginary;
+        this.bailout = Math.max(4d, constantReal * constantReal + constantImaginary * constantImaginary);
+        this.connected = isOrbitOfZeroBounded(constantReal, constantImaginary);
+    }
+
+    private static boolean isOrbitOfZeroBounded(double constantReal, double constantImaginary) {
+        double zReal = 0d;
+        double zImaginary = 0d;
+        for (int iteration = 0; iteration < CONNECTEDNESS_ITERATIONS; iteration++) {
+            double realSquared = zReal * zReal;
+            double imaginarySquared = zImaginary * zImaginary;
+            if (realSquared + imaginarySquared > 4d) {
+                return false;
+            }
+            zImaginary = 2 * zReal * zImaginary + constantImaginary;
+            zReal = realSquared - imaginarySquared + constantReal;
+        }
+        return true;
+    }
+
+    @Override
+    public int computeIterations(double zReal, double zImaginary) {
+        return iterate(zReal, zImaginary);
+    }
+
+    @Override
+    public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline) {
+        for (int y = 0; y < height; y++) {
+            double zImaginary = originImaginary - y * pixelIncrement;
+            int rowOffset = offset + y * scanline;
+            for (int x = 0; x < width; x++) {
+                iterationBuffer[rowOffset + x] = iterate(originReal + x * pixelIncrement, zImaginary);
+            }
+        }
+    }
+
+    private int iterate(double startReal, double startImaginary) {
+        double zReal = startReal;
+        double zImaginary = startImaginary;
+        double checkReal = startReal;
+        double checkImaginary = startImaginary;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double realSquared = zReal * zReal;
+            double imaginarySquared = zImaginary * zImaginary;
+            if (realSquared + imaginarySquared > bailout) {
+                return iteration;
+            }
+            zImaginary = 2 * zReal * zImaginary + constantImaginary;
+            zReal = realSquared - imaginarySquared + constantReal;
+            if (periodicityCheck) {
+                if (zReal == checkReal && zImaginary == checkImaginary) {
+                    return iterations;
+                }
+                if (++sinceCheck == checkInterval) {
+                    checkReal = zReal;
+                    checkImaginary = zImaginary;
+                    sinceCheck = 0;
+                    checkInterval <<= 1;
+                }
+            }
+        }
+        return iterations;
+    }
+}
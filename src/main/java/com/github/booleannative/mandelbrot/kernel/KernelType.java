@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+
+import java.util.Locale;
+
+/**
+ * The kernels that can be selected on the command line.
+ */
+public enum KernelType {
+    MANDELBROT, JULIA, MULTIBROT, BURNING_SHIP;
+
+    public static KernelType parse(String type) {
+        try {
+            return valueOf(type.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown kernel: '" + type + "'");
+        }
+    }
+
+    /**
+     * A kernel of this type with the default constant or power.
+     */
+    public IterationKernel create() {
+        switch (this) {
+            case MANDELBROT:
+                return new MandelbrotSet();
+            case JULIA:
+                return new JuliaSet(JuliaSet.DEFAULT_CONSTANT_REAL, JuliaSet.DEFAULT_CONSTANT_IMAGINARY);
+            case MULTIBROT:
+                return new Multibrot(Multibrot.DEFAULT_POWER);
+            case BURNING_SHIP:
+                return new BurningShip();
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import lombok.Getter;
+
+/**
+ * The Multibrot set of z^d + c for an integer power d of at least 2, power 2 is the Mandelbrot set. Unlike
+ * {@link com.github.booleannative.mandelbrot.MandelbrotSet}, it has no interior check and escapes once |z| exceeds 2.
+ */
+@Getter
+public final class Multibrot extends DoublePrecisionKernel {
+    public static final int DEFAULT_POWER = 3;
+    private static final double BAILOUT = 4d;
+    private final int power;
+
+    public Multibrot(int power) {
+        if (power < 2) {
+            throw new IllegalArgumentException("the power of a multibrot set has to be at least 2");
+        }
+        this.power = power;
+    }
+
+    // like the Mandelbrot set, every multibrot set of an integer power is connected
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public int computeIterations(double cReal, double cImaginary) {
+        return iterate(cReal, cImaginary);
+    }
+
+    @Override
+    public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline) {
+        for (int y = 0; y < height; y++) {
+            double cImaginary = originImaginary - y * pixelIncrement;
+            int rowOffset = offset + y * scanline;
+            for (int x = 0; x < width; x++) {
+                iterationBuffer[rowOffset + x] = iterate(originReal + x * pixelIncrement, cImaginary);
+            }
+        }
+    }
+
+    private int iterate(double cReal, double cImaginary) {
+        double zReal = 0d;
+        double zImaginary = 0d;
+        double checkReal = 0d;
+        double checkImaginary = 0d;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            if (zReal * zReal + zImaginary * zImaginary > BAILOUT) {
+                return iteration;
+            }
+            double powerReal = zReal;
+            double powerImaginary = zImaginary;
+            for (int i = 1; i < power; i++) {
+                double real = powerReal * zReal - powerImaginary * zImaginary;
+                powerImaginary = powerReal * zImaginary + powerImaginary * zReal;
+                powerReal = real;
+            }
+            zReal = powerReal + cReal;
+            zImaginary = powerImaginary + cImaginary;
+            if (periodicityCheck) {
+                if (zReal == checkReal && zImaginary == checkImaginary) {
+                    return iterations;
+                }
+                if (++sinceCheck == checkInterval) {
+                    checkReal = zReal;
+                    checkImaginary = zImaginary;
+                    sinceCheck = 0;
+                    checkInterval <<= 1;
+                }
+            }
+        }
+        return iterations;
+    }
+}
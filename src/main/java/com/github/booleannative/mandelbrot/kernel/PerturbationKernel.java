@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * Deep zoom kernel: the orbit of a single reference point is computed once with {@link BigDecimal}, every other point
+ * is iterated as a double delta to that orbit. The deltas stay representable long after the increment between two
+ * pixels has dropped below the resolution of double coordinates, so deep views render at almost double speed.
+ * <p>
+ * The coordinates passed to {@link #computeIterations(double, double, int)} are relative to the reference point.
+ * A glitch occurs when the perturbed orbit comes closer to zero than to the reference orbit, as the delta then loses
+ * all precision relative to the full value. The delta is then rebased onto the start of the reference orbit, which is
+ * also done when the reference orbit ends before the point escaped.
+ */
+public class PerturbationKernel implements ReferenceKernel {
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final int MINIMUM_PRECISION = 32;
+    private final BigDecimal referenceReal;
+    private final BigDecimal referenceImaginary;
+    private final double pixelIncrement;
+    private final int iterations;
+    private final double[] orbitReal;
+    private final double[] orbitImaginary;
+
+    public PerturbationKernel(BigDecimal referenceReal, BigDecimal referenceImaginary, double pixelIncrement, int iterations) {
+        this.referenceReal = referenceReal;
+        this.referenceImaginary = referenceImaginary;
+        this.pixelIncrement = pixelIncrement;
+        this.iterations = iterations;
+        MathContext mathContext = new MathContext(Math.max(MINIMUM_PRECISION, (int) Math.ceil(-Math.log10(pixelIncrement)) + 16));
+        double[] real = new double[iterations + 1];
+        double[] imaginary = new double[iterations + 1];
+        BigDecimal zReal = BigDecimal.ZERO;
+        BigDecimal zImaginary = BigDecimal.ZERO;
+        int length = 1;
+        while (length <= iterations) {
+            BigDecimal nextReal = zReal.multiply(zReal, mathContext).subtract(zImaginary.multiply(zImaginary, mathContext)).add(referenceReal, mathContext);
+            zImaginary = TWO.multiply(zReal).multiply(zImaginary, mathContext).add(referenceImaginary, mathContext);
+            zReal = nextReal;
+            real[length] = zReal.doubleValue();
+            imaginary[length] = zImaginary.doubleValue();
+            if (Math.abs(real[length++]) > 2d) {
+                break;
+            }
+        }
+        orbitReal = Arrays.copyOf(real, length);
+        orbitImaginary = Arrays.copyOf(imaginary, length);
+    }
+
+    @Override
+    public int computeIterations(double deltaCReal, double deltaCImaginary, int iterations) {
+        int last = orbitReal.length - 1;
+        int referenceIteration = 0;
+        double deltaReal = 0d;
+        double deltaImaginary = 0d;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double zReal = orbitReal[referenceIteration];
+            double zImaginary = orbitImaginary[referenceIteration];
+            // delta' = 2 * z * delta + delta^2 + deltaC
+            double nextDeltaReal = 2 * (zReal * deltaReal - zImaginary * deltaImaginary) + deltaReal * deltaReal - deltaImaginary * deltaImaginary + deltaCReal;
+            deltaImaginary = 2 * (zReal * deltaImaginary + zImaginary * deltaReal + deltaReal * deltaImaginary) + deltaCImaginary;
+            deltaReal = nextDeltaReal;
+            referenceIteration++;
+            double real = orbitReal[referenceIteration] + deltaReal;
+            double imaginary = orbitImaginary[referenceIteration] + deltaImaginary;
+            if (real < -2d || real > 2d) {
+                return iteration;
+            }
+            if (referenceIteration == last || real * real + imaginary * imaginary < deltaReal * deltaReal + deltaImaginary * deltaImaginary) {
+                deltaReal = real;
+                deltaImaginary = imaginary;
+                referenceIteration = 0;
+            }
+        }
+        return iterations;
+    }
+
+    @Override
+    public boolean isComputedFor(double pixelIncrement, int iterations) {
+        return this.pixelIncrement == pixelIncrement && this.iterations == iterations;
+    }
+
+    @Override
+    public BigDecimal getReferenceReal() {
+        return referenceReal;
+    }
+
+    @Override
+    public BigDecimal getReferenceImaginary() {
+        return referenceImaginary;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.PERTURBATION;
+    }
+}
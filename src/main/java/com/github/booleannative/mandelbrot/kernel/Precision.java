@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+/**
+ * The arithmetic used to iterate, from the cheapest to the most precise. Each tier resolves pixels down to an increment
+ * that is proportional to the largest coordinate of the view, below that neighbouring pixels collapse to the same value.
+ * Rounding errors add up with every iteration, so more iterations need a larger margin to that increment.
+ */
+public enum Precision {
+    FLOAT(0x1p-23d),
+    DOUBLE(0x1p-52d),
+    DOUBLE_DOUBLE(0x1p-104d),
+    PERTURBATION(0d);
+
+    /**
+     * How many times the increment must be larger than the resolution of the coordinates at least, for views with
+     * only a few iterations.
+     */
+    private static final double RESOLUTION_MARGIN = 1024d;
+    /**
+     * How much each iteration adds to the margin. With float, the default view of 1000 iterations already rounds
+     * more than a thousand pixels to other iterations than double.
+     */
+    private static final double ITERATION_MARGIN = 32d;
+    /**
+     * The orbits of interesting points reach absolute values of 2, so smaller coordinates do not gain any resolution.
+     */
+    private static final double MINIMUM_EXTENT = 2d;
+    private final double epsilon;
+
+    Precision(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Selects the cheapest precision that still resolves the given increment after the given number of iterations.
+     *
+     * @param extent the largest absolute value of the real or imaginary part of any point of the view
+     */
+    public static Precision select(double pixelIncrement, double extent, int iterations) {
+        double resolution = Math.max(extent, MINIMUM_EXTENT) * Math.max(RESOLUTION_MARGIN, iterations * ITERATION_MARGIN);
+        for (Precision precision : values()) {
+            if (pixelIncrement >= resolution * precision.epsilon) {
+                return precision;
+            }
+        }
+        return PERTURBATION;
+    }
+}
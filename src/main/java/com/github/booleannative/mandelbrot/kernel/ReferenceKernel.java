@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import java.math.BigDecimal;
+
+/**
+ * A kernel for views below the resolution of double coordinates: the points are passed as double offsets to a reference
+ * point that is known with higher precision.
+ */
+public interface ReferenceKernel {
+    /**
+     * @return the number of iterations needed to escape, or iterations if the point is a member of the set
+     */
+    int computeIterations(double deltaReal, double deltaImaginary, int iterations);
+
+    /**
+     * Whether this kernel can be reused for a view with the given increment and number of iterations, i.e. only the
+     * center of the view moved.
+     */
+    boolean isComputedFor(double pixelIncrement, int iterations);
+
+    BigDecimal getReferenceReal();
+
+    BigDecimal getReferenceImaginary();
+
+    Precision getPrecision();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+/**
+ * Calculates the escape time of a whole row of points in one call, so implementations can process several points at once.
+ * Implementations must return exactly the same number of iterations as {@link com.github.booleannative.mandelbrot.MandelbrotSet#computeIterations(double, double)}.
+ */
+public interface RowKernel {
+    void computeRow(double originReal, double imaginary, double pixelIncrement, int width, int iterations,
+                    boolean interiorCheck, boolean periodicityCheck, int[] iterationBuffer, int offset);
+
+    /**
+     * Same as {@link #computeRow}, but iterates in float precision. The points are calculated in double and then
+     * rounded to float, the interior check is done in double.
+     */
+    void computeRowFloat(double originReal, double imaginary, double pixelIncrement, int width, int iterations,
+                         boolean interiorCheck, boolean periodicityCheck, int[] iterationBuffer, int offset);
+}
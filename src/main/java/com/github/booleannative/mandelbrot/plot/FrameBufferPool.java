@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import lombok.Getter;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Two frame buffers for each size the panel renders, previews included: the one that is shown and the one the next
+ * frame is colored into. So frames are colored without allocating images, until the panel is resized.
+ * Not thread-safe, it is only used by the render thread.
+ */
+class FrameBufferPool {
+    private final Map<Dimension, FrameBuffer[]> buffers = new HashMap<>();
+    private final Dimension panelSize = new Dimension();
+    @Getter
+    private long allocations;
+
+    /**
+     * Drops all buffers once the panel size changed, as they do not fit any more.
+     */
+    void resize(int width, int height) {
+        if (panelSize.width != width || panelSize.height != height) {
+            panelSize.setSize(width, height);
+            buffers.clear();
+        }
+    }
+
+    /**
+     * @return a buffer of the given size other than the one that is shown
+     */
+    FrameBuffer acquire(int width, int height, FrameBuffer shown) {
+        FrameBuffer[] pair = buffers.computeIfAbsent(new Dimension(width, height), size -> new FrameBuffer[2]);
+        int index = pair[0] != null && pair[0] == shown ? 1 : 0;
+        if (pair[index] == null) {
+            pair[index] = new FrameBuffer(width, height);
+            allocations++;
+        }
+        return pair[index];
+    }
+}
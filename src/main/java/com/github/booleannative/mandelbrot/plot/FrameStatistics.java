@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import lombok.Data;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What rendering a frame of the window took. The pixels of a frame were either iterated by the plot strategy, filled
+ * by it without iterating, e.g. as part of an enclosed rectangle, or reused from earlier frames after panning, zooming
+ * out or recoloring. Computed and filled pixels are -1 if the strategy does not count them.
+ * <p>
+ * The phases are the time the frame waited for the render thread, the previews, the iterations and coloring the
+ * frame buffer. The busy time of each worker of the render executor shows how evenly the work was spread.
+ */
+@Data
+public class FrameStatistics {
+    private long frame;
+    private int width;
+    private int height;
+    private long computedPixels;
+    private long filledPixels;
+    /**
+     * Of the filled pixels, the ones the distance estimation strategy filled as members of the set within the interior
+     * distance of a computed pixel, and the ones it filled in squares within the exterior distance. -1 for the other
+     * strategies.
+     */
+    private long interiorFilledPixels = -1;
+    private long exteriorFilledPixels = -1;
+    private long reusedPixels;
+    /**
+     * The sum of the dwell of all pixels, members counting the maximum. This is not what the kernel iterated: it would
+     * take that many iterations to compute every pixel without any interior or periodicity check, while filled and
+     * reused pixels are not iterated at all.
+     */
+    private long dwellSum;
+    /**
+     * Maximum and mean number of iterations of the pixels outside of the set.
+     */
+    private int maxDwell;
+    private double meanDwell;
+    private long interiorPixels;
+    private double queueMillis;
+    private double previewMillis;
+    private double iterateMillis;
+    private double colorMillis;
+    private double frameMillis;
+    private Map<String, Double> workerBusyMillis = new TreeMap<>();
+
+    public void countDwell(IterationField iterationField) {
+        int maxIterations = iterationField.getMaxIterations();
+        long total = 0;
+        long interior = 0;
+        long escaped = 0;
+        long escapedIterations = 0;
+        int max = 0;
+        for (int iterations : iterationField.getIterations()) {
+            if (iterations >= maxIterations) {
+                total += maxIterations;
+                interior++;
+            } else if (iterations >= 0) {
+                total += iterations;
+                escaped++;
+                escapedIterations += iterations;
+                max = Math.max(max, iterations);
+            }
+        }
+        dwellSum = total;
+        maxDwell = max;
+        meanDwell = escaped == 0 ? 0 : (double) escapedIterations / escaped;
+        interiorPixels = interior;
+    }
+
+    /**
+     * Sets the busy time of each worker from two snapshots of {@link com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor#getWorkerCpuNanos()}.
+     */
+    public void countWorkerBusyTime(Map<String, Long> cpuNanosBefore, Map<String, Long> cpuNanosAfter) {
+        workerBusyMillis = new TreeMap<>();
+        cpuNanosAfter.forEach((worker, nanos) -> workerBusyMillis.put(worker, (nanos - cpuNanosBefore.getOrDefault(worker, 0L)) / 1e6));
+    }
+
+    /**
+     * One line of space separated key=value pairs, for log processors.
+     */
+    public String toLogLine() {
+        StringBuilder line = new StringBuilder()
+                .append("frame=").append(frame)
+                .append(" width=").append(width)
+                .append(" height=").append(height)
+                .append(" computedPixels=").append(computedPixels)
+                .append(" filledPixels=").append(filledPixels)
+                .append(" interiorFilledPixels=").append(interiorFilledPixels)
+                .append(" exteriorFilledPixels=").append(exteriorFilledPixels)
+                .append(" reusedPixels=").append(reusedPixels)
+                .append(" dwellSum=").append(dwellSum)
+                .append(" maxDwell=").append(maxDwell)
+                .append(" meanDwell=").append(String.format(Locale.ROOT, "%.1f", meanDwell))
+                .append(" interiorPixels=").append(interiorPixels)
+                .append(" queueMillis=").append(millis(queueMillis))
+                .append(" previewMillis=").append(millis(previewMillis))
+                .append(" iterateMillis=").append(millis(iterateMillis))
+                .append(" colorMillis=").append(millis(colorMillis))
+                .append(" frameMillis=").append(millis(frameMillis));
+        workerBusyMillis.forEach((worker, millis) -> line.append(" busyMillis.").append(worker).append('=').append(millis(millis)));
+        return line.toString();
+    }
+
+    private static String millis(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
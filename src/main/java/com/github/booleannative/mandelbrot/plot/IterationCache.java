@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps the iteration fields of earlier frames, so zooming out or navigating back to an area that was already computed
+ * at the same or a finer resolution does not iterate again. Every pixel of the new view takes the iterations of the
+ * nearest pixel of a finer field, which always lies within the new pixel.
+ * <p>
+ * Views are looked up in square tiles: a tile is only taken from the cache if all of its pixels are covered, otherwise
+ * it is computed. The fields used least recently are dropped once the cache exceeds its size.
+ * Fields computed with double-double or perturbation are not kept, as their coordinates are relative to a reference
+ * point. Not thread-safe, each instance is only used by a single render thread.
+ */
+@Slf4j
+public class IterationCache {
+    public static final int TILE_SIZE = 32;
+    private final long maxBytes;
+    // access ordered, the least recently used field first
+    private final LinkedHashMap<IterationField, Precision> fields = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    @Getter
+    private long lookups;
+    @Getter
+    private long hits;
+    @Getter
+    private long evictions;
+
+    public IterationCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static boolean isCacheable(Precision precision) {
+        return precision == Precision.FLOAT || precision == Precision.DOUBLE;
+    }
+
+    public void put(IterationField field, Precision precision) {
+        if (!isCacheable(precision) || fields.containsKey(field)) {
+            return;
+        }
+        fields.put(field, precision);
+        totalBytes += bytes(field);
+        Iterator<IterationField> leastRecentlyUsed = fields.keySet().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            IterationField evicted = leastRecentlyUsed.next();
+            if (evicted == field) {
+                continue;
+            }
+            leastRecentlyUsed.remove();
+            totalBytes -= bytes(evicted);
+            evictions++;
+        }
+    }
+
+    /**
+     * Takes the tiles of the field that are covered by the cached fields from the cache and computes the others.
+     * The field itself is not put into the cache.
+     *
+     * @return the number of tiles taken from the cache
+     */
+    public int compute(IterationField iterationField, Precision precision, MandelbrotPlotStrategy strategy, BooleanSupplier isCancelled) {
+        int width = iterationField.getWidth();
+        int height = iterationField.getHeight();
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        boolean[] cached = new boolean[columns * rows];
+        int cachedTiles = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int left = column * TILE_SIZE;
+                int top = row * TILE_SIZE;
+                cached[row * columns + column] = fill(iterationField, precision, left, top, Math.min(TILE_SIZE, width - left), Math.min(TILE_SIZE, height - top));
+                cachedTiles += cached[row * columns + column] ? 1 : 0;
+            }
+        }
+        log.info("iteration cache: {} of {} tiles reused, hit ratio: {}, evictions: {}", cachedTiles, cached.length,
+                lookups == 0 ? 0 : (double) hits / lookups, evictions);
+        if (cachedTiles == 0) {
+            iterationField.compute(strategy, 0, 0, width, height, isCancelled);
+            return 0;
+        }
+        // the tiles that are not cached are computed in horizontal runs
+        for (int row = 0; row < rows; row++) {
+            int top = row * TILE_SIZE;
+            int runStart = -1;
+            for (int column = 0; column <= columns; column++) {
+                boolean computed = column < columns && !cached[row * columns + column];
+                if (computed && runStart < 0) {
+                    runStart = column;
+                } else if (!computed && runStart >= 0) {
+                    int left = runStart * TILE_SIZE;
+                    iterationField.compute(strategy, left, top, Math.min(column * TILE_SIZE, width) - left, Math.min(TILE_SIZE, height - top), isCancelled);
+                    runStart = -1;
+                }
+            }
+        }
+        return cachedTiles;
+    }
+
+    /**
+     * Fills a tile of the field from the cached fields, if they cover every pixel of it.
+     *
+     * @return whether the tile was filled, otherwise it may have been written partially and has to be computed
+     */
+    public boolean fill(IterationField target, Precision precision, int left, int top, int width, int height) {
+        lookups++;
+        if (!isCacheable(precision)) {
+            return false;
+        }
+        double increment = target.getPixelIncrement();
+        double tileLeftReal = target.getCenter().getReal() - target.getWidth() * increment / 2d + left * increment;
+        double tileTopImaginary = target.getCenter().getImaginary() + target.getHeight() * increment / 2d - top * increment;
+        double tileRightReal = tileLeftReal + (width - 1) * increment;
+        double tileBottomImaginary = tileTopImaginary - (height - 1) * increment;
+        List<IterationField> sources = new ArrayList<>();
+        for (Map.Entry<IterationField, Precision> cached : fields.entrySet()) {
+            IterationField source = cached.getKey();
+            // float tiles are not good enough for double views, double tiles are fine for float views
+            if (source.getMaxIterations() == target.getMaxIterations() && source.getPixelIncrement() <= increment && source != target
+                    && cached.getValue().compareTo(precision) >= 0 && overlaps(source, tileLeftReal, tileTopImaginary, tileRightReal, tileBottomImaginary)) {
+                sources.add(source);
+            }
+        }
+        if (sources.isEmpty()) {
+            return false;
+        }
+        int[] iterations = target.getIterations();
+        for (int y = top; y < top + height; y++) {
+            double imaginary = tileTopImaginary - (y - top) * increment;
+            for (int x = left; x < left + width; x++) {
+                double real = tileLeftReal + (x - left) * increment;
+                int sourceIterations = sample(sources, real, imaginary);
+                if (sourceIterations == Integer.MIN_VALUE) {
+                    return false;
+                }
+                iterations[y * target.getWidth() + x] = sourceIterations;
+            }
+        }
+        sources.forEach(fields::get);
+        hits++;
+        return true;
+    }
+
+    private static int sample(List<IterationField> sources, double real, double imaginary) {
+        for (IterationField source : sources) {
+            double sourceIncrement = source.getPixelIncrement();
+            long x = Math.round((real - (source.getCenter().getReal() - source.getWidth() * sourceIncrement / 2d)) / sourceIncrement);
+            long y = Math.round(((source.getCenter().getImaginary() + source.getHeight() * sourceIncrement / 2d) - imaginary) / sourceIncrement);
+            if (x >= 0 && y >= 0 && x < source.getWidth() && y < source.getHeight()) {
+                return source.getIterations()[(int) y * source.getWidth() + (int) x];
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private static boolean overlaps(IterationField source, double leftReal, double topImaginary, double rightReal, double bottomImaginary) {
+        double increment = source.getPixelIncrement();
+        double sourceLeftReal = source.getCenter().getReal() - source.getWidth() * increment / 2d - increment / 2d;
+        double sourceTopImaginary = source.getCenter().getImaginary() + source.getHeight() * increment / 2d + increment / 2d;
+        double sourceRightReal = sourceLeftReal + (source.getWidth() + 1) * increment;
+        double sourceBottomImaginary = sourceTopImaginary - (source.getHeight() + 1) * increment;
+        return sourceLeftReal <= rightReal && leftReal <= sourceRightReal && sourceBottomImaginary <= topImaginary && bottomImaginary <= sourceTopImaginary;
+    }
+
+    private static long bytes(IterationField field) {
+        return (long) field.getIterations().length * Integer.BYTES;
+    }
+}
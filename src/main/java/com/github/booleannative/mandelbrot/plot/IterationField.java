@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.math3.complex.Complex;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The number of iterations needed by each pixel of a computed view, row by row, together with the parameters it was
+ * computed for. As long as these do not change, the view can be colored again without iterating.
+ */
+@Getter
+public class IterationField {
+    /**
+     * How far from a whole number of pixels a pan may be, so that the pixels can still be reused.
+     */
+    private static final double PAN_TOLERANCE = 1e-3d;
+    private final Complex center;
+    private final double pixelIncrement;
+    private final int width;
+    private final int height;
+    private final int maxIterations;
+    private final int[] iterations;
+    /**
+     * Whether some pixels were taken from the nearest pixel of a finer field instead of being computed. Such a field
+     * is only an approximation of the view and must not be used as the source of other fields.
+     */
+    @Setter
+    private boolean seeded;
+
+    public IterationField(Complex center, double pixelIncrement, int width, int height, int maxIterations) {
+        this.center = center;
+        this.pixelIncrement = pixelIncrement;
+        this.width = width;
+        this.height = height;
+        this.maxIterations = maxIterations;
+        this.iterations = new int[width * height];
+    }
+
+    public boolean isComputedFor(Complex center, double pixelIncrement, int width, int height, int maxIterations) {
+        return this.center.equals(center) && this.pixelIncrement == pixelIncrement
+                && this.width == width && this.height == height && this.maxIterations == maxIterations;
+    }
+
+    /**
+     * Whether a view centered at the given center shares pixels with this one, i.e. it is only moved by a whole number
+     * of pixels that is smaller than the width and height.
+     */
+    public boolean canBePannedTo(Complex center, double pixelIncrement, int width, int height, int maxIterations) {
+        if (this.pixelIncrement != pixelIncrement || this.width != width || this.height != height || this.maxIterations != maxIterations) {
+            return false;
+        }
+        double offsetX = (center.getReal() - this.center.getReal()) / pixelIncrement;
+        double offsetY = (this.center.getImaginary() - center.getImaginary()) / pixelIncrement;
+        return Math.abs(offsetX - Math.round(offsetX)) < PAN_TOLERANCE && Math.abs(offsetY - Math.round(offsetY)) < PAN_TOLERANCE
+                && Math.abs(Math.round(offsetX)) < width && Math.abs(Math.round(offsetY)) < height;
+    }
+
+    /**
+     * The number of pixels the view centered at the given center is moved to the right of this one.
+     */
+    public int getPanX(Complex center) {
+        return (int) Math.round((center.getReal() - this.center.getReal()) / pixelIncrement);
+    }
+
+    /**
+     * The number of pixels the view centered at the given center is moved down from this one.
+     */
+    public int getPanY(Complex center) {
+        return (int) Math.round((this.center.getImaginary() - center.getImaginary()) / pixelIncrement);
+    }
+
+    /**
+     * Copies the pixels this field shares with the panned field into it. The pixels exposed by the pan are left untouched.
+     */
+    public void copyPannedPixels(IterationField panned) {
+        int panX = getPanX(panned.getCenter());
+        int panY = getPanY(panned.getCenter());
+        int sourceX = Math.max(panX, 0);
+        int targetX = Math.max(-panX, 0);
+        int rowLength = width - Math.abs(panX);
+        for (int targetY = Math.max(-panY, 0); targetY < height && targetY + panY < height; targetY++) {
+            System.arraycopy(iterations, (targetY + panY) * width + sourceX, panned.getIterations(), targetY * width + targetX, rowLength);
+        }
+    }
+
+    /**
+     * Computes the iterations of a rectangle of this field, the other pixels are left untouched.
+     */
+    public void compute(MandelbrotPlotStrategy strategy, int left, int top, int width, int height, BooleanSupplier isCancelled) {
+        if (width < 1 || height < 1) {
+            return;
+        }
+        double topLeftReal = center.getReal() - this.width * pixelIncrement / 2d;
+        double topLeftImaginary = center.getImaginary() + this.height * pixelIncrement / 2d;
+        Complex rectangleCenter = new Complex(topLeftReal + (left + width / 2d) * pixelIncrement, topLeftImaginary - (top + height / 2d) * pixelIncrement);
+        strategy.computeIterations(rectangleCenter, width, height, pixelIncrement, iterations, top * this.width + left, this.width, isCancelled);
+    }
+}
@@ -17,40 +17,355 @@
 
 package com.github.booleannative.mandelbrot.plot;
 
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import com.github.booleannative.mandelbrot.plot.strategy.DistanceEstimationPlotStrategy;
 import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
 import org.apache.commons.math3.complex.Complex;
 
 import javax.swing.*;
 import java.awt.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
+/**
+ * Renders on a background thread, so the event dispatch thread never waits for the iterations. Each frame starts with
+ * coarse previews that are refined until the full resolution is reached. Requesting a new frame cancels the one that
+ * is still being rendered, only finished images are painted. The number of iterations is requested with the view and
+ * only set on the kernel by the render thread, so it never changes while a frame is rendered.
+ * <p>
+ * Frames are colored straight into the pixels of a {@link FrameBuffer}. Each size has two of them, while one is shown,
+ * the next frame is colored into the other one, so no images are allocated or copied until the panel is resized.
+ * <p>
+ * Once a frame is shown, the render thread prefetches the views that are likely to be requested next with the prefetch
+ * strategy, which renders on the background lane. Requesting a frame cancels the prefetching at the next cancellation
+ * check, and a frame whose view was prefetched completely is just colored. Prefetching is limited to float and double
+ * views, as preparing a deep zoom kernel for another view would replace the one of the current view. It can be
+ * switched off with the system property {@code disablePrefetch}.
+ */
 @RequiredArgsConstructor
 @Slf4j
 public class MandelbrotPanel extends JComponent {
+    /**
+     * The previews are rendered with one pixel for scale x scale pixels of the panel, coarsest first.
+     */
+    private static final int[] PREVIEW_SCALES = {8, 2};
+    private static final long DEFAULT_ITERATION_CACHE_MEGABYTES = 256;
 
     private final MandelbrotPlotStrategy paintStrategy;
-    private Complex center;
-    private double pixelIncrement;
+    private final IterationKernel kernel;
+    private final MandelbrotColorCalculator color;
+    private final MandelbrotPlotStrategy prefetchStrategy;
+    private final boolean prefetchEnabled = System.getProperty("disablePrefetch") == null;
+    // debug fields mark the filled pixels instead of their iterations, so they are neither cached nor panned
+    private final boolean reuseEnabled = !MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+    private final ExecutorService renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mandelbrot-render");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong frameNumber = new AtomicLong();
+    private volatile BigDecimal centerReal;
+    private volatile BigDecimal centerImaginary;
+    private volatile double pixelIncrement;
+    private volatile int iterations;
+    private volatile List<Viewport> likelyNextViews = List.of();
+    private volatile boolean plotRequested;
+    private volatile RenderedFrame renderedFrame;
+    private int requestedWidth;
+    private int requestedHeight;
+    // only written by the render thread
+    private volatile IterationField lastIterationField;
+    private final List<IterationField> prefetched = new ArrayList<>();
+    private final FrameBufferPool frameBuffers = new FrameBufferPool();
+    private final IterationCache iterationCache = new IterationCache(Long.getLong("iterationCacheSize", DEFAULT_ITERATION_CACHE_MEGABYTES) * 1024 * 1024);
+    // null unless enabled, so nothing is collected by default
+    private final RenderStatistics renderStatistics = RenderStatistics.fromSystemProperties();
+    private long requestedPixels;
+    private final MandelbrotPlotStrategy countingStrategy = this::computeCounted;
+
+    public void plot(BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement) {
+        plot(new Viewport(centerReal, centerImaginary, pixelIncrement), List.of());
+    }
 
-    public void plot(Complex center, double pixelIncrement) {
-        this.center = center;
-        this.pixelIncrement = pixelIncrement;
+    /**
+     * @param likelyNextViews the views to prefetch once the view is shown, most likely first
+     */
+    public void plot(Viewport view, List<Viewport> likelyNextViews) {
+        plot(view, kernel.getIterations(), likelyNextViews);
+    }
+
+    /**
+     * @param iterations the number of iterations to render the view and the likely next views with
+     * @param likelyNextViews the views to prefetch once the view is shown, most likely first
+     */
+    public void plot(Viewport view, int iterations, List<Viewport> likelyNextViews) {
+        this.centerReal = view.getCenterReal();
+        this.centerImaginary = view.getCenterImaginary();
+        this.pixelIncrement = view.getPixelIncrement();
+        this.iterations = iterations;
+        this.likelyNextViews = likelyNextViews;
+        this.plotRequested = true;
         this.repaint();
     }
 
     @Override
     public void paintComponent(Graphics g) {
-        if (center == null) {
+        if (centerReal == null) {
+            return;
+        }
+        if (plotRequested || requestedWidth != getWidth() || requestedHeight != getHeight()) {
+            plotRequested = false;
+            requestRender();
+        }
+        RenderedFrame rendered = renderedFrame;
+        if (rendered != null) {
+            FrameBuffer buffer = rendered.getBuffer();
+            // the render thread may be about to color the next frame into this buffer again
+            synchronized (buffer) {
+                g.drawImage(buffer.getImage(), 0, 0, buffer.getWidth() * rendered.getScale(), buffer.getHeight() * rendered.getScale(), (img, flags, x, y, w, h) -> false);
+            }
+        }
+    }
+
+    private void requestRender() {
+        long frame = frameNumber.incrementAndGet();
+        requestedWidth = getWidth();
+        requestedHeight = getHeight();
+        BigDecimal frameCenterReal = centerReal;
+        BigDecimal frameCenterImaginary = centerImaginary;
+        double framePixelIncrement = pixelIncrement;
+        int width = requestedWidth;
+        int height = requestedHeight;
+        int maxIterations = iterations;
+        List<Viewport> frameLikelyNextViews = likelyNextViews;
+        long requestNanos = System.nanoTime();
+        renderExecutor.execute(() -> {
+            // the previous frame has stopped using the kernel, as it ran on this thread
+            kernel.setIterations(maxIterations);
+            render(frame, requestNanos, frameCenterReal, frameCenterImaginary, framePixelIncrement, width, height, maxIterations);
+            prefetch(frame, frameLikelyNextViews, width, height, maxIterations);
+        });
+    }
+
+    private void render(long frame, long requestNanos, BigDecimal centerReal, BigDecimal centerImaginary, double pixelIncrement, int width, int height, int maxIterations) {
+        BooleanSupplier isCancelled = () -> frameNumber.get() != frame;
+        if (isCancelled.getAsBoolean() || width < 1 || height < 1) {
             return;
         }
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        frameBuffers.resize(width, height);
+        Map<String, Long> workerCpuNanos = renderStatistics == null ? null : RenderExecutor.getDefault().getWorkerCpuNanos();
         try {
-            paintStrategy.paintManelbrot(center, getWidth(), getHeight(), pixelIncrement, g);
-        } finally {
-            long stopTime = System.currentTimeMillis();
-            log.info("frametime: {}s", (stopTime - startTime) / 1000.0);
+            Complex center = kernel.prepareView(centerReal, centerImaginary, pixelIncrement, width, height);
+            if (!canReuseLastIterationField(center, pixelIncrement, width, height, maxIterations) && findPrefetched(center, pixelIncrement, width, height, maxIterations) == null) {
+                for (int scale : PREVIEW_SCALES) {
+                    int previewWidth = (width + scale - 1) / scale;
+                    int previewHeight = (height + scale - 1) / scale;
+                    IterationField preview = new IterationField(center, pixelIncrement * scale, previewWidth, previewHeight, maxIterations);
+                    paintStrategy.computeIterations(center, previewWidth, previewHeight, pixelIncrement * scale, preview.getIterations(), 0, previewWidth, isCancelled);
+                    publish(frame, preview, scale);
+                }
+            }
+            long previewedNanos = System.nanoTime();
+            long computedPixelsBefore = paintStrategy.getComputedPixels();
+            DistanceEstimationPlotStrategy distanceEstimation = paintStrategy instanceof DistanceEstimationPlotStrategy ? (DistanceEstimationPlotStrategy) paintStrategy : null;
+            long interiorPixelsBefore = distanceEstimation == null ? -1 : distanceEstimation.getInteriorPixels();
+            long exteriorPixelsBefore = distanceEstimation == null ? -1 : distanceEstimation.getExteriorPixels();
+            long requestedPixelsBefore = requestedPixels;
+            Precision precision = kernel.getPrecision();
+            IterationField iterationField = computeIterationField(center, pixelIncrement, width, height, maxIterations, precision, isCancelled);
+            long iteratedNanos = System.nanoTime();
+            FrameBuffer buffer = color(iterationField);
+            long coloredNanos = System.nanoTime();
+            show(frame, buffer, 1);
+            log.info("frametime: {}s, {} precision, increment: {}", (System.currentTimeMillis() - startTime) / 1000.0, precision, pixelIncrement);
+            if (renderStatistics != null) {
+                FrameStatistics statistics = new FrameStatistics();
+                statistics.setFrame(frame);
+                statistics.setWidth(width);
+                statistics.setHeight(height);
+                long computed = paintStrategy.getComputedPixels() - computedPixelsBefore;
+                long requested = requestedPixels - requestedPixelsBefore;
+                statistics.setComputedPixels(computedPixelsBefore < 0 ? -1 : computed);
+                statistics.setFilledPixels(computedPixelsBefore < 0 ? -1 : requested - computed);
+                if (distanceEstimation != null) {
+                    statistics.setInteriorFilledPixels(distanceEstimation.getInteriorPixels() - interiorPixelsBefore);
+                    statistics.setExteriorFilledPixels(distanceEstimation.getExteriorPixels() - exteriorPixelsBefore);
+                }
+                statistics.setReusedPixels((long) width * height - requested);
+                statistics.countDwell(iterationField);
+                statistics.setQueueMillis((startNanos - requestNanos) / 1e6);
+                statistics.setPreviewMillis((previewedNanos - startNanos) / 1e6);
+                statistics.setIterateMillis((iteratedNanos - previewedNanos) / 1e6);
+                statistics.setColorMillis((coloredNanos - iteratedNanos) / 1e6);
+                statistics.setFrameMillis((System.nanoTime() - startNanos) / 1e6);
+                statistics.countWorkerBusyTime(workerCpuNanos, RenderExecutor.getDefault().getWorkerCpuNanos());
+                renderStatistics.record(statistics);
+            }
+        } catch (CancellationException e) {
+            log.debug("frame {} cancelled after {}s", frame, (System.currentTimeMillis() - startTime) / 1000.0);
+        } catch (RuntimeException e) {
+            log.error("rendering frame {} failed", frame, e);
         }
     }
 
+    private void publish(long frame, IterationField iterationField, int scale) {
+        show(frame, color(iterationField), scale);
+    }
+
+    /**
+     * Colors the field into the buffer of its size that is not shown, row by row in parallel on the interactive lane.
+     */
+    private FrameBuffer color(IterationField iterationField) {
+        int width = iterationField.getWidth();
+        RenderedFrame shown = renderedFrame;
+        FrameBuffer buffer = frameBuffers.acquire(width, iterationField.getHeight(), shown == null ? null : shown.getBuffer());
+        int[] iterations = iterationField.getIterations();
+        int[] pixels = buffer.getPixels();
+        synchronized (buffer) {
+            RenderExecutor.getDefault().getInteractive().invoke(() -> IntStream.range(0, iterationField.getHeight()).parallel()
+                    .forEach(row -> color.determineRGB(iterations, row * width, iterationField.getMaxIterations(), pixels, row * width, width)));
+        }
+        return buffer;
+    }
+
+    private void show(long frame, FrameBuffer buffer, int scale) {
+        if (frameNumber.get() != frame) {
+            throw new CancellationException();
+        }
+        renderedFrame = new RenderedFrame(buffer, scale);
+        repaint();
+    }
+
+    /**
+     * Counts the pixels the strategy is asked to compute, the other pixels of a frame are reused from earlier frames.
+     */
+    private void computeCounted(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        requestedPixels += (long) width * height;
+        paintStrategy.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+    }
+
+    /**
+     * The iteration field of the frame shown last, or the one being rendered.
+     */
+    IterationField getLastIterationField() {
+        return lastIterationField;
+    }
+
+    private boolean canReuseLastIterationField(Complex center, double pixelIncrement, int width, int height, int maxIterations) {
+        return lastIterationField != null && (lastIterationField.isComputedFor(center, pixelIncrement, width, height, maxIterations)
+                || reuseEnabled && lastIterationField.canBePannedTo(center, pixelIncrement, width, height, maxIterations));
+    }
+
+    private IterationField findPrefetched(Complex center, double pixelIncrement, int width, int height, int maxIterations) {
+        for (IterationField field : prefetched) {
+            if (field.isComputedFor(center, pixelIncrement, width, height, maxIterations)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Only iterates if the view changed since the last frame and was not prefetched, changing the colors just colors
+     * the last iteration field again. Fields seeded from the cache are not put into it, so the cache only ever seeds
+     * from computed pixels and the error of taking the nearest pixel does not add up when zooming out repeatedly.
+     */
+    private IterationField computeIterationField(Complex center, double pixelIncrement, int width, int height, int maxIterations, Precision precision, BooleanSupplier isCancelled) {
+        if (lastIterationField != null && lastIterationField.isComputedFor(center, pixelIncrement, width, height, maxIterations)) {
+            log.debug("recoloring the last iteration field");
+            return lastIterationField;
+        }
+        IterationField iterationField = findPrefetched(center, pixelIncrement, width, height, maxIterations);
+        if (iterationField != null) {
+            log.debug("taking the prefetched iteration field");
+        } else {
+            iterationField = new IterationField(center, pixelIncrement, width, height, maxIterations);
+            compute(iterationField, precision, countingStrategy, isCancelled);
+        }
+        if (reuseEnabled && !iterationField.isSeeded()) {
+            iterationCache.put(iterationField, precision);
+        }
+        lastIterationField = iterationField;
+        return iterationField;
+    }
+
+    private void compute(IterationField iterationField, Precision precision, MandelbrotPlotStrategy strategy, BooleanSupplier isCancelled) {
+        if (reuseEnabled && lastIterationField != null && lastIterationField.canBePannedTo(iterationField.getCenter(), iterationField.getPixelIncrement(),
+                iterationField.getWidth(), iterationField.getHeight(), iterationField.getMaxIterations())) {
+            pan(lastIterationField, iterationField, strategy, isCancelled);
+            iterationField.setSeeded(lastIterationField.isSeeded());
+        } else {
+            // e.g. after zooming out, the tiles computed at the same or a finer resolution before are taken from the cache
+            iterationField.setSeeded(iterationCache.compute(iterationField, precision, strategy, isCancelled) > 0);
+        }
+    }
+
+    /**
+     * Computes the iteration fields of the views that are likely to be requested next, until the next frame is requested.
+     * The fields prefetched for the last frame are dropped, they are at most one step away from a view that is no longer shown.
+     */
+    private void prefetch(long frame, List<Viewport> views, int width, int height, int maxIterations) {
+        prefetched.clear();
+        BooleanSupplier isCancelled = () -> frameNumber.get() != frame;
+        if (!prefetchEnabled || isCancelled.getAsBoolean() || lastIterationField == null || !IterationCache.isCacheable(kernel.getPrecision())) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            for (Viewport view : views) {
+                if (!IterationCache.isCacheable(kernel.selectPrecision(view.getCenterReal(), view.getCenterImaginary(), view.getPixelIncrement(), width, height))) {
+                    continue;
+                }
+                Complex center = kernel.prepareView(view.getCenterReal(), view.getCenterImaginary(), view.getPixelIncrement(), width, height);
+                IterationField iterationField = new IterationField(center, view.getPixelIncrement(), width, height, maxIterations);
+                compute(iterationField, kernel.getPrecision(), prefetchStrategy, isCancelled);
+                prefetched.add(iterationField);
+            }
+            log.debug("prefetched {} views in {}s", prefetched.size(), (System.currentTimeMillis() - startTime) / 1000.0);
+        } catch (CancellationException e) {
+            log.debug("prefetching cancelled after {} views", prefetched.size());
+        } catch (RuntimeException e) {
+            log.error("prefetching failed", e);
+        }
+    }
+
+    /**
+     * Reuses the pixels of the last frame that are still visible and only computes the strips exposed by the pan.
+     */
+    private void pan(IterationField last, IterationField panned, MandelbrotPlotStrategy strategy, BooleanSupplier isCancelled) {
+        int panX = last.getPanX(panned.getCenter());
+        int panY = last.getPanY(panned.getCenter());
+        log.debug("panning the last iteration field by ({}, {}) pixels", panX, panY);
+        last.copyPannedPixels(panned);
+        int rows = Math.abs(panY);
+        int columns = Math.abs(panX);
+        int stripTop = panY < 0 ? 0 : panned.getHeight() - rows;
+        panned.compute(strategy, 0, stripTop, panned.getWidth(), rows, isCancelled);
+        int stripLeft = panX < 0 ? 0 : panned.getWidth() - columns;
+        panned.compute(strategy, stripLeft, panY < 0 ? rows : 0, columns, panned.getHeight() - rows, isCancelled);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class RenderedFrame {
+        private final FrameBuffer buffer;
+        private final int scale;
+    }
+
 }
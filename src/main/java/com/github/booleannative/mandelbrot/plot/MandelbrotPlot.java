@@ -21,11 +21,13 @@ import com.github.booleannative.mandelbrot.MandelbrotSet;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
-import com.github.booleannative.mandelbrot.plot.strategy.RecursivelyDetectEnclosedRectanglesPlotStrategy;
-import org.apache.commons.math3.complex.Complex;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
 
 import javax.swing.*;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 
@@ -33,15 +35,30 @@ import java.awt.event.KeyEvent;
 public class MandelbrotPlot {
 
     @Getter
-    private final MandelbrotSet mandelBrotSet = new MandelbrotSet();
-    private final MandelbrotColorCalculator mandelbrotColor = new MandelbrotColorCalculator(mandelBrotSet);
-    private final MandelbrotPanel mandelbrotPanel = new MandelbrotPanel(new RecursivelyDetectEnclosedRectanglesPlotStrategy(mandelbrotColor));
-    private final int movePixels = 40;
-    private Complex center = new Complex(-0.5, 0);
-    private double pixelIncrement = 0.004d;
+    private final IterationKernel kernel;
+    private final MandelbrotColorCalculator mandelbrotColor;
+    private final MandelbrotPanel mandelbrotPanel;
+    private Viewport view = new Viewport(BigDecimal.valueOf(-0.5), BigDecimal.ZERO, 0.004d);
+    // passed to the panel with the view, the kernel is only changed by the render thread
+    private int iterations;
+    // repeated more often than any other step, so the view it leads to is prefetched first
+    private Navigation lastNavigation;
 
 
     public MandelbrotPlot() {
+        this(PlotStrategyType.RECTANGLES);
+    }
+
+    public MandelbrotPlot(PlotStrategyType strategyType) {
+        this(strategyType, new MandelbrotSet());
+    }
+
+    public MandelbrotPlot(PlotStrategyType strategyType, IterationKernel kernel) {
+        this.kernel = kernel;
+        this.iterations = kernel.getIterations();
+        mandelbrotColor = new MandelbrotColorCalculator(kernel);
+        mandelbrotPanel = new MandelbrotPanel(strategyType.create(kernel), kernel, mandelbrotColor,
+                strategyType.create(kernel, RenderExecutor.getDefault().getBackground()));
         JFrame mandelFrame = new JFrame();
         mandelFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         mandelbrotPanel.setPreferredSize(new Dimension(750, 500));
@@ -123,51 +140,58 @@ public class MandelbrotPlot {
     }
 
     private void finer() {
-        mandelBrotSet.setIterations((int) (mandelBrotSet.getIterations() * 1.5));
+        iterations = (int) (iterations * 1.5);
         plot();
     }
 
     private void coarser() {
-        if (mandelBrotSet.getIterations() < 5) {
+        if (iterations < 5) {
             return;
         }
-        mandelBrotSet.setIterations((int) (mandelBrotSet.getIterations() / 1.5));
+        iterations = (int) (iterations / 1.5);
         plot();
     }
 
+    /**
+     * Sets the number of iterations of the next frame.
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
     public void zoomIn() {
-        pixelIncrement /= 1.2;
-        plot();
+        navigate(Navigation.ZOOM_IN);
     }
 
     public void zoomOut() {
-        pixelIncrement *= 1.2;
-        plot();
+        navigate(Navigation.ZOOM_OUT);
     }
 
     public void up() {
-        center = center.add(new Complex(0, movePixels * pixelIncrement));
-        plot();
+        navigate(Navigation.UP);
     }
 
     public void down() {
-        center = center.add(new Complex(0, -movePixels * pixelIncrement));
-        plot();
+        navigate(Navigation.DOWN);
     }
 
     public void left() {
-        center = center.add(new Complex(movePixels * -pixelIncrement, 0));
-        plot();
+        navigate(Navigation.LEFT);
     }
 
     public void rigth() {
-        center = center.add(new Complex(movePixels * pixelIncrement, 0));
+        navigate(Navigation.RIGHT);
+    }
+
+    private void navigate(Navigation navigation) {
+        view = navigation.apply(view);
+        lastNavigation = navigation;
         plot();
     }
 
     public void plot() {
-        log.info("plotting, increment: {} iterations: {} center: {}", pixelIncrement, mandelBrotSet.getIterations(), center);
-        mandelbrotPanel.plot(center, pixelIncrement);
+        log.info("plotting, increment: {} iterations: {} center: ({}, {})", view.getPixelIncrement(), iterations, view.getCenterReal(), view.getCenterImaginary());
+        mandelbrotPanel.plot(view, iterations, Navigation.likelyNext(view, lastNavigation));
     }
 
 }
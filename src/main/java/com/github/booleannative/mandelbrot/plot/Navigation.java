@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The steps the keys of the window move the view by.
+ */
+public enum Navigation {
+    LEFT, RIGHT, UP, DOWN, ZOOM_IN, ZOOM_OUT;
+
+    public static final int MOVE_PIXELS = 40;
+    public static final double ZOOM_FACTOR = 1.2d;
+
+    public Viewport apply(Viewport view) {
+        switch (this) {
+            case LEFT:
+                return view.pan(-MOVE_PIXELS, 0);
+            case RIGHT:
+                return view.pan(MOVE_PIXELS, 0);
+            case UP:
+                return view.pan(0, MOVE_PIXELS);
+            case DOWN:
+                return view.pan(0, -MOVE_PIXELS);
+            case ZOOM_IN:
+                return view.withPixelIncrement(view.getPixelIncrement() / ZOOM_FACTOR);
+            case ZOOM_OUT:
+                return view.withPixelIncrement(view.getPixelIncrement() * ZOOM_FACTOR);
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * The views one step away, most likely first: keys tend to be pressed repeatedly, so the last step comes first,
+     * followed by the pans, which are cheap to compute, and the zooms.
+     *
+     * @param last the last step, or null
+     */
+    public static List<Viewport> likelyNext(Viewport view, Navigation last) {
+        List<Viewport> views = new ArrayList<>();
+        if (last != null) {
+            views.add(last.apply(view));
+        }
+        for (Navigation navigation : values()) {
+            if (navigation != last) {
+                views.add(navigation.apply(view));
+            }
+        }
+        return views;
+    }
+}
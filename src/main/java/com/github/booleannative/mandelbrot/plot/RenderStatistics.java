@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Collects the {@link FrameStatistics} of the window and publishes them as the MXBean {@value #OBJECT_NAME}, e.g. for
+ * JConsole or VisualVM. With the system property {@code logRenderStatistics}, every frame is also logged as a line of
+ * key=value pairs. Nothing is collected unless this or the system property {@code renderStatistics} is set.
+ */
+@Slf4j
+public class RenderStatistics implements RenderStatisticsMXBean {
+    public static final String OBJECT_NAME = "com.github.booleannative.mandelbrot:type=RenderStatistics";
+    private final boolean logFrames;
+    private FrameStatistics lastFrame;
+    private long frames;
+    private long computedPixels;
+    private long filledPixels;
+    private long interiorFilledPixels;
+    private long exteriorFilledPixels;
+    private long reusedPixels;
+    private long dwellSum;
+    private double iterateMillis;
+    private double colorMillis;
+    private double frameMillis;
+
+    public RenderStatistics(boolean logFrames) {
+        this.logFrames = logFrames;
+    }
+
+    /**
+     * @return the statistics registered with the platform MBean server, or null if they are not enabled
+     */
+    public static RenderStatistics fromSystemProperties() {
+        boolean logFrames = System.getProperty("logRenderStatistics") != null;
+        if (!logFrames && System.getProperty("renderStatistics") == null) {
+            return null;
+        }
+        RenderStatistics statistics = new RenderStatistics(logFrames);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            log.warn("render statistics are not published over JMX: {}", e.toString());
+        }
+        return statistics;
+    }
+
+    public synchronized void record(FrameStatistics frame) {
+        lastFrame = frame;
+        frames++;
+        computedPixels += Math.max(frame.getComputedPixels(), 0);
+        filledPixels += Math.max(frame.getFilledPixels(), 0);
+        interiorFilledPixels += Math.max(frame.getInteriorFilledPixels(), 0);
+        exteriorFilledPixels += Math.max(frame.getExteriorFilledPixels(), 0);
+        reusedPixels += frame.getReusedPixels();
+        dwellSum += frame.getDwellSum();
+        iterateMillis += frame.getIterateMillis();
+        colorMillis += frame.getColorMillis();
+        frameMillis += frame.getFrameMillis();
+        if (logFrames) {
+            log.info("frame statistics: {}", frame.toLogLine());
+        }
+    }
+
+    @Override
+    public synchronized FrameStatistics getLastFrame() {
+        return lastFrame;
+    }
+
+    @Override
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public synchronized long getComputedPixels() {
+        return computedPixels;
+    }
+
+    @Override
+    public synchronized long getFilledPixels() {
+        return filledPixels;
+    }
+
+    @Override
+    public synchronized long getInteriorFilledPixels() {
+        return interiorFilledPixels;
+    }
+
+    @Override
+    public synchronized long getExteriorFilledPixels() {
+        return exteriorFilledPixels;
+    }
+
+    @Override
+    public synchronized long getReusedPixels() {
+        return reusedPixels;
+    }
+
+    @Override
+    public synchronized long getDwellSum() {
+        return dwellSum;
+    }
+
+    @Override
+    public synchronized double getIterateMillis() {
+        return iterateMillis;
+    }
+
+    @Override
+    public synchronized double getColorMillis() {
+        return colorMillis;
+    }
+
+    @Override
+    public synchronized double getFrameMillis() {
+        return frameMillis;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * What the window shows: the center, kept exactly so panning still works once the increment is below the resolution
+ * of double coordinates, and the distance between two pixels.
+ */
+@Data
+public class Viewport {
+    private final BigDecimal centerReal;
+    private final BigDecimal centerImaginary;
+    private final double pixelIncrement;
+
+    /**
+     * The view moved by the given number of pixels to the right and up.
+     */
+    public Viewport pan(int pixelsRight, int pixelsUp) {
+        BigDecimal real = pixelsRight == 0 ? centerReal : centerReal.add(BigDecimal.valueOf(pixelsRight * pixelIncrement));
+        BigDecimal imaginary = pixelsUp == 0 ? centerImaginary : centerImaginary.add(BigDecimal.valueOf(pixelsUp * pixelIncrement));
+        return new Viewport(real, imaginary, pixelIncrement);
+    }
+
+    public Viewport withPixelIncrement(double pixelIncrement) {
+        return new Viewport(centerReal, centerImaginary, pixelIncrement);
+    }
+}
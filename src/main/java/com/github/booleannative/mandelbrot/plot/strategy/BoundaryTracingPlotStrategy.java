@@ -0,0 +1,257 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Only computes the pixels along the contours between areas of the same dwell and fills the areas enclosed by them.
+ * <p>
+ * The image is split into tiles that are traced in parallel, starting with the pixels on the edges of each tile. Whenever
+ * a pixel needed another number of iterations than one of its neighbours, the neighbours are traced as well, so the
+ * tracing follows the contours. A trace may cross into other tiles, every pixel is claimed by exactly one trace through
+ * an atomic update of its state. Once all tiles are traced, each pixel that was never computed gets the value of its
+ * left neighbour, as it is enclosed by a contour of that value. Kernels that are not
+ * {@link IterationKernel#isConnected() connected} are computed completely instead.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class BoundaryTracingPlotStrategy implements MandelbrotPlotStrategy {
+    public static final int DEFAULT_TILE_SIZE = 64;
+    private static final int COMPUTED = 1;
+    private static final int QUEUED = 2;
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+    private final IterationKernel kernel;
+    private final RenderExecutor.Lane lane;
+    private final boolean debugEnclosedRectangleDetection = MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+    /**
+     * Width and height of the tiles that are traced in parallel.
+     */
+    @Setter
+    private int tileSize = Integer.getInteger("boundaryTracingTileSize", DEFAULT_TILE_SIZE);
+    private final LongAdder computedPixels = new LongAdder();
+
+    /**
+     * A strategy that renders on the interactive lane of the default {@link RenderExecutor}.
+     */
+    public BoundaryTracingPlotStrategy(IterationKernel kernel) {
+        this(kernel, RenderExecutor.getDefault().getInteractive());
+    }
+
+    @Override
+    public void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        if (width < 1 || height < 1) {
+            return;
+        }
+        if (!kernel.isConnected()) {
+            // islands of another dwell may lie inside of a contour without touching it
+            log.debug("{} is not connected, computing all pixels", kernel.getClass().getSimpleName());
+            ParallelPlotStrategy parallel = new ParallelPlotStrategy(kernel, lane);
+            parallel.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+            computedPixels.add(parallel.getComputedPixels());
+            return;
+        }
+        Trace trace = new Trace(center.getReal() - width * pixelIncrement / 2d, center.getImaginary() + height * pixelIncrement / 2d,
+                pixelIncrement, width, height, iterationField, offset, scanline, lane.checkpoint(isCancelled), new AtomicIntegerArray(width * height));
+        long computedPixelsBefore = computedPixels.sum();
+        List<TraceTileAction> tiles = new ArrayList<>();
+        for (int tileTop = 0; tileTop < height; tileTop += tileSize) {
+            for (int tileLeft = 0; tileLeft < width; tileLeft += tileSize) {
+                tiles.add(new TraceTileAction(trace, tileLeft, tileTop, Math.min(tileSize, width - tileLeft), Math.min(tileSize, height - tileTop)));
+            }
+        }
+        lane.invoke(() -> {
+            ForkJoinTask.invokeAll(tiles);
+            IntStream.range(0, height).parallel().forEach(trace::fillRow);
+        });
+        log.debug("mandelbrot computed: w: {} h: {}, iterated {} pixels", width, height, computedPixels.sum() - computedPixelsBefore);
+    }
+
+    /**
+     * @return the number of pixels that were iterated instead of filled, over all calls of this strategy
+     */
+    @Override
+    public long getComputedPixels() {
+        return computedPixels.sum();
+    }
+
+    @RequiredArgsConstructor
+    private class Trace {
+        private final double topLeftReal;
+        private final double topLeftImaginary;
+        private final double pixelIncrement;
+        private final int width;
+        private final int height;
+        private final int[] iterationField;
+        private final int offset;
+        private final int scanline;
+        private final BooleanSupplier isCancelled;
+        // COMPUTED and QUEUED flags of each pixel, indexed by y * width + x
+        private final AtomicIntegerArray pixelStates;
+
+        void traceTile(int tileLeft, int tileTop, int tileWidth, int tileHeight) {
+            PixelQueue queue = new PixelQueue();
+            for (int x = tileLeft; x < tileLeft + tileWidth; x++) {
+                enqueue(queue, x, tileTop);
+                enqueue(queue, x, tileTop + tileHeight - 1);
+            }
+            for (int y = tileTop + 1; y < tileTop + tileHeight - 1; y++) {
+                enqueue(queue, tileLeft, y);
+                enqueue(queue, tileLeft + tileWidth - 1, y);
+            }
+            int scanned = 0;
+            while (!queue.isEmpty()) {
+                if (++scanned % CANCELLATION_CHECK_INTERVAL == 0 && isCancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                scan(queue, queue.poll());
+            }
+        }
+
+        /**
+         * Traces the neighbours of the pixel, if any of them needed another number of iterations. The diagonal
+         * neighbours are only traced next to a differing horizontal or vertical neighbour, so contours that only touch
+         * at a corner are followed as well.
+         */
+        private void scan(PixelQueue queue, int pixel) {
+            int x = pixel % width;
+            int y = pixel / width;
+            int iterations = load(x, y);
+            boolean left = x > 0 && load(x - 1, y) != iterations;
+            boolean right = x < width - 1 && load(x + 1, y) != iterations;
+            boolean up = y > 0 && load(x, y - 1) != iterations;
+            boolean down = y < height - 1 && load(x, y + 1) != iterations;
+            if (left) {
+                enqueue(queue, x - 1, y);
+            }
+            if (right) {
+                enqueue(queue, x + 1, y);
+            }
+            if (up) {
+                enqueue(queue, x, y - 1);
+            }
+            if (down) {
+                enqueue(queue, x, y + 1);
+            }
+            if (x > 0 && y > 0 && (left || up)) {
+                enqueue(queue, x - 1, y - 1);
+            }
+            if (x < width - 1 && y > 0 && (right || up)) {
+                enqueue(queue, x + 1, y - 1);
+            }
+            if (x > 0 && y < height - 1 && (left || down)) {
+                enqueue(queue, x - 1, y + 1);
+            }
+            if (x < width - 1 && y < height - 1 && (right || down)) {
+                enqueue(queue, x + 1, y + 1);
+            }
+        }
+
+        private void enqueue(PixelQueue queue, int x, int y) {
+            int pixel = y * width + x;
+            if ((pixelStates.getAndAccumulate(pixel, QUEUED, (state, flag) -> state | flag) & QUEUED) == 0) {
+                queue.add(pixel);
+            }
+        }
+
+        /**
+         * Computes the pixel unless it has been computed already. Two traces may compute the same pixel at the same time,
+         * which is harmless, as both write the same value.
+         */
+        private int load(int x, int y) {
+            int pixel = y * width + x;
+            int fieldIndex = offset + y * scanline + x;
+            if ((pixelStates.get(pixel) & COMPUTED) != 0) {
+                return iterationField[fieldIndex];
+            }
+            int iterations = kernel.computeIterations(topLeftReal + x * pixelIncrement, topLeftImaginary - y * pixelIncrement);
+            iterationField[fieldIndex] = iterations;
+            pixelStates.getAndAccumulate(pixel, COMPUTED, (state, flag) -> state | flag);
+            computedPixels.increment();
+            return iterations;
+        }
+
+        // the first pixel of each row is on the edge of a tile, so it has always been computed
+        void fillRow(int y) {
+            int fieldIndex = offset + y * scanline;
+            for (int x = 1; x < width; x++) {
+                if ((pixelStates.get(y * width + x) & COMPUTED) == 0) {
+                    iterationField[fieldIndex + x] = debugEnclosedRectangleDetection ? MandelbrotColorCalculator.ENCLOSED_DEBUG_ITERATIONS : iterationField[fieldIndex + x - 1];
+                }
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class TraceTileAction extends RecursiveAction {
+        private final Trace trace;
+        private final int tileLeft;
+        private final int tileTop;
+        private final int tileWidth;
+        private final int tileHeight;
+
+        @Override
+        protected void compute() {
+            trace.traceTile(tileLeft, tileTop, tileWidth, tileHeight);
+        }
+    }
+
+    /**
+     * A growable queue of pixel indices, so tracing does not box every pixel.
+     */
+    private static class PixelQueue {
+        private int[] pixels = new int[256];
+        private int head;
+        private int tail;
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        void add(int pixel) {
+            if (tail == pixels.length) {
+                // reuse the polled space if it is at least half of the queue, grow the queue otherwise
+                int[] target = head > pixels.length / 2 ? pixels : new int[pixels.length * 2];
+                System.arraycopy(pixels, head, target, 0, tail - head);
+                pixels = target;
+                tail -= head;
+                head = 0;
+            }
+            pixels[tail++] = pixel;
+        }
+
+        int poll() {
+            return pixels[head++];
+        }
+    }
+}
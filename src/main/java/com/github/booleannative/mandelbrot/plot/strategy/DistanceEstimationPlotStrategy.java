@@ -0,0 +1,260 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.DistanceEstimator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.complex.Complex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Estimates the distance of each computed pixel to the boundary of the set and skips the pixels that are proven to be on
+ * the same side. Unlike enclosed rectangles, this also works next to filaments, where no rectangle outline is free of
+ * the set.
+ * <p>
+ * The image is split into tiles that are computed in parallel, row by row. Whenever a pixel of a tile is computed, the
+ * {@link DistanceEstimator} yields a disc around it that lies entirely inside or entirely outside of the set. Inside of
+ * the set, every pixel of the disc is a member and is filled without iterating. Outside of the set, the iterations still
+ * differ within the disc, so the outline of the largest square within the disc is computed like an enclosed rectangle,
+ * and the square is filled if the outline needed the same number of iterations as its center. As the square contains
+ * no member, this cannot hide any part of the set.
+ * <p>
+ * Distances are estimated in double precision for the Mandelbrot set only. Other kernels, and views that need more
+ * than double precision, are computed completely. Views the kernel would compute in float precision are iterated in
+ * double precision as well, so their pixels may differ from the ones of the other strategies, as float rounding
+ * changes the number of iterations of some pixels near the boundary.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class DistanceEstimationPlotStrategy implements MandelbrotPlotStrategy {
+    public static final int DEFAULT_TILE_SIZE = 64;
+    private final IterationKernel kernel;
+    private final RenderExecutor.Lane lane;
+    private final boolean debugEnclosedRectangleDetection = MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+    /**
+     * Width and height of the tiles that are computed in parallel.
+     */
+    @Setter
+    private int tileSize = Integer.getInteger("distanceEstimationTileSize", DEFAULT_TILE_SIZE);
+    private final LongAdder computedPixels = new LongAdder();
+    private final LongAdder interiorPixels = new LongAdder();
+    private final LongAdder exteriorPixels = new LongAdder();
+
+    /**
+     * A strategy that renders on the interactive lane of the default {@link RenderExecutor}.
+     */
+    public DistanceEstimationPlotStrategy(IterationKernel kernel) {
+        this(kernel, RenderExecutor.getDefault().getInteractive());
+    }
+
+    @Override
+    public void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        if (width < 1 || height < 1) {
+            return;
+        }
+        Precision precision = kernel.getPrecision();
+        boolean estimate = kernel instanceof MandelbrotSet && (precision == Precision.FLOAT || precision == Precision.DOUBLE);
+        if (!estimate) {
+            log.debug("no distance estimation for {} with {} precision, computing all pixels", kernel.getClass().getSimpleName(), precision);
+        }
+        View view = new View(center.getReal() - width * pixelIncrement / 2d, center.getImaginary() + height * pixelIncrement / 2d,
+                pixelIncrement, kernel.getIterations(), iterationField, offset, scanline, estimate, lane.checkpoint(isCancelled));
+        long computedPixelsBefore = computedPixels.sum();
+        long interiorPixelsBefore = interiorPixels.sum();
+        long exteriorPixelsBefore = exteriorPixels.sum();
+        List<TileAction> tiles = new ArrayList<>();
+        for (int tileTop = 0; tileTop < height; tileTop += tileSize) {
+            for (int tileLeft = 0; tileLeft < width; tileLeft += tileSize) {
+                tiles.add(new TileAction(view, tileLeft, tileTop, Math.min(tileSize, width - tileLeft), Math.min(tileSize, height - tileTop)));
+            }
+        }
+        lane.invoke(() -> ForkJoinTask.invokeAll(tiles));
+        log.debug("mandelbrot computed: w: {} h: {}, iterated {} pixels, filled {} pixels in interior discs and {} in exterior squares", width, height,
+                computedPixels.sum() - computedPixelsBefore, interiorPixels.sum() - interiorPixelsBefore, exteriorPixels.sum() - exteriorPixelsBefore);
+    }
+
+    /**
+     * @return the number of pixels that were iterated instead of filled, over all calls of this strategy
+     */
+    @Override
+    public long getComputedPixels() {
+        return computedPixels.sum();
+    }
+
+    /**
+     * @return the number of pixels that were filled as members of the set, as they were within the interior distance
+     * of a computed pixel, over all calls of this strategy
+     */
+    public long getInteriorPixels() {
+        return interiorPixels.sum();
+    }
+
+    /**
+     * @return the number of pixels that were filled within the exterior distance of a computed pixel, over all calls
+     * of this strategy
+     */
+    public long getExteriorPixels() {
+        return exteriorPixels.sum();
+    }
+
+    @RequiredArgsConstructor
+    private static class View {
+        private final double topLeftReal;
+        private final double topLeftImaginary;
+        private final double pixelIncrement;
+        private final int iterations;
+        private final int[] iterationField;
+        private final int offset;
+        private final int scanline;
+        private final boolean estimate;
+        private final BooleanSupplier isCancelled;
+    }
+
+    /**
+     * Computes a tile. Discs and squares are clipped to the tile, so each tile only writes its own pixels.
+     */
+    @RequiredArgsConstructor
+    private class TileAction extends RecursiveAction {
+        private final View view;
+        private final int tileLeft;
+        private final int tileTop;
+        private final int tileWidth;
+        private final int tileHeight;
+        private final DistanceEstimator estimator = new DistanceEstimator();
+        private boolean[] done;
+
+        @Override
+        protected void compute() {
+            if (!view.estimate) {
+                if (view.isCancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                kernel.computeIterations(view.topLeftReal + tileLeft * view.pixelIncrement, view.topLeftImaginary - tileTop * view.pixelIncrement, view.pixelIncrement,
+                        tileWidth, tileHeight, view.iterationField, fieldIndex(0, 0), view.scanline);
+                computedPixels.add((long) tileWidth * tileHeight);
+                return;
+            }
+            done = new boolean[tileWidth * tileHeight];
+            for (int y = 0; y < tileHeight; y++) {
+                if (view.isCancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                for (int x = 0; x < tileWidth; x++) {
+                    if (done[y * tileWidth + x]) {
+                        continue;
+                    }
+                    int iterations = load(x, y);
+                    double radius = estimator.getDistance() / view.pixelIncrement;
+                    if (iterations >= view.iterations) {
+                        fillDisc(x, y, radius);
+                    } else {
+                        // outline pixels are computed either way, so a smaller square is tried if the outline differs
+                        for (int halfSize = (int) (radius / Math.sqrt(2d)); halfSize > 0 && !fillSquare(x, y, halfSize, iterations); halfSize /= 2) {
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fills the pixels whose centers are closer to the given pixel than the interior distance.
+         */
+        private void fillDisc(int centerX, int centerY, double radius) {
+            int extent = (int) Math.ceil(radius) - 1;
+            for (int y = Math.max(0, centerY - extent); y <= Math.min(tileHeight - 1, centerY + extent); y++) {
+                for (int x = Math.max(0, centerX - extent); x <= Math.min(tileWidth - 1, centerX + extent); x++) {
+                    int dx = x - centerX;
+                    int dy = y - centerY;
+                    if (dx * dx + dy * dy < radius * radius && !done[y * tileWidth + x]) {
+                        view.iterationField[fieldIndex(x, y)] = debugEnclosedRectangleDetection ? MandelbrotColorCalculator.ENCLOSED_DEBUG_ITERATIONS : view.iterations;
+                        done[y * tileWidth + x] = true;
+                        interiorPixels.increment();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the outline of the square around the given pixel, which lies within its exterior distance, and
+         * fills the square if the whole outline needed the same number of iterations.
+         *
+         * @return false if the outline differed
+         */
+        private boolean fillSquare(int centerX, int centerY, int halfSize, int iterations) {
+            int left = Math.max(0, centerX - halfSize);
+            int right = Math.min(tileWidth - 1, centerX + halfSize);
+            int top = Math.max(0, centerY - halfSize);
+            int bottom = Math.min(tileHeight - 1, centerY + halfSize);
+            if (right - left < 2 || bottom - top < 2) {
+                return true;
+            }
+            for (int x = left; x <= right; x++) {
+                if (load(x, top) != iterations || load(x, bottom) != iterations) {
+                    return false;
+                }
+            }
+            for (int y = top + 1; y < bottom; y++) {
+                if (load(left, y) != iterations || load(right, y) != iterations) {
+                    return false;
+                }
+            }
+            for (int y = top + 1; y < bottom; y++) {
+                for (int x = left + 1; x < right; x++) {
+                    if (!done[y * tileWidth + x]) {
+                        view.iterationField[fieldIndex(x, y)] = debugEnclosedRectangleDetection ? MandelbrotColorCalculator.ENCLOSED_DEBUG_ITERATIONS : iterations;
+                        done[y * tileWidth + x] = true;
+                        exteriorPixels.increment();
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Computes the pixel unless it is done already. The distance of the estimator is only valid for computed pixels.
+         */
+        private int load(int x, int y) {
+            int fieldIndex = fieldIndex(x, y);
+            if (done[y * tileWidth + x]) {
+                return view.iterationField[fieldIndex];
+            }
+            int iterations = estimator.estimate(view.topLeftReal + (tileLeft + x) * view.pixelIncrement, view.topLeftImaginary - (tileTop + y) * view.pixelIncrement, view.iterations);
+            view.iterationField[fieldIndex] = iterations;
+            done[y * tileWidth + x] = true;
+            computedPixels.increment();
+            return iterations;
+        }
+
+        private int fieldIndex(int x, int y) {
+            return view.offset + (tileTop + y) * view.scanline + tileLeft + x;
+        }
+    }
+}
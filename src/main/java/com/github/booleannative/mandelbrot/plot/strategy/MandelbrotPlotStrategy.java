@@ -19,9 +19,48 @@ package com.github.booleannative.mandelbrot.plot.strategy;
 
 import org.apache.commons.math3.complex.Complex;
 
-import java.awt.Graphics;
+import java.util.function.BooleanSupplier;
 
 
 public interface MandelbrotPlotStrategy {
-    void paintManelbrot(Complex center, int width, int height, double pixelIncrement, Graphics g);
+    /**
+     * Fills the number of iterations needed by each pixel of the view into the iteration field, row by row.
+     * Coloring is left to the caller, so the same field can be colored again without iterating.
+     */
+    default void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField) {
+        computeIterations(center, width, height, pixelIncrement, iterationField, 0, width);
+    }
+
+    /**
+     * Same as {@link #computeIterations(Complex, int, int, double, int[])}, but the view may be a part of a larger
+     * iteration field: its top left pixel is at the given offset and its rows are scanline entries apart.
+     */
+    default void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline) {
+        computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, () -> false);
+    }
+
+    /**
+     * Same as {@link #computeIterations(Complex, int, int, double, int[], int, int)}, but checks isCancelled while computing
+     * and stops with a {@link java.util.concurrent.CancellationException} once it returns true. The iteration field is
+     * only partially filled then.
+     */
+    void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled);
+
+    /**
+     * @return the number of pixels that were iterated instead of filled, over all calls of this strategy,
+     * or -1 if the strategy does not count them
+     */
+    default long getComputedPixels() {
+        return -1;
+    }
+
+    /**
+     * Whether the strategies that fill areas mark the filled pixels with
+     * {@link com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator#ENCLOSED_DEBUG_ITERATIONS} instead of
+     * their iterations, system property {@code debugEnclosedRectangleDetection}. Such fields are only good for coloring
+     * the frame they were computed for, so they are neither cached nor reused for other views.
+     */
+    static boolean isDebugEnclosedRectangleDetection() {
+        return System.getProperty("debugEnclosedRectangleDetection") != null;
+    }
 }
@@ -17,42 +17,55 @@
 
 package com.github.booleannative.mandelbrot.plot.strategy;
 
-import com.github.booleannative.mandelbrot.color.MandelbrotCoordinateColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.complex.Complex;
 
-import java.awt.*;
-import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 import java.util.stream.IntStream;
 
 @RequiredArgsConstructor
 @Slf4j
 public class ParallelPlotStrategy implements MandelbrotPlotStrategy {
 
-    private final MandelbrotCoordinateColorCalculator color;
+    private final IterationKernel kernel;
+    private final RenderExecutor.Lane lane;
+    private final LongAdder computedPixels = new LongAdder();
+
+    /**
+     * A strategy that renders on the interactive lane of the default {@link RenderExecutor}.
+     */
+    public ParallelPlotStrategy(IterationKernel kernel) {
+        this(kernel, RenderExecutor.getDefault().getInteractive());
+    }
 
     @Override
-    public void paintManelbrot(Complex center, int width, int height, double pixelIncrement, Graphics g) {
-        Complex topLeft = center.add(new Complex((-width / 2) * pixelIncrement, (-height / 2) * pixelIncrement));
-        log.info("w: {}} h: {} topLeft: {}", width, height, topLeft);
-        IntStream.range(0, height).parallel().forEach(row -> plotRow(row, width, pixelIncrement, topLeft, g));
+    public void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        double topLeftReal = center.getReal() - width * pixelIncrement / 2d;
+        double topLeftImaginary = center.getImaginary() + height * pixelIncrement / 2d;
+        log.debug("w: {} h: {} topLeft: ({}, {})", width, height, topLeftReal, topLeftImaginary);
+        BooleanSupplier checkpoint = lane.checkpoint(isCancelled);
+        lane.invoke(() -> IntStream.range(0, height).parallel().forEach(row -> plotRow(row, width, pixelIncrement, topLeftReal, topLeftImaginary, iterationField, offset, scanline, checkpoint)));
     }
 
-    private void plotRow(int row, int width, double pixelIncrement, Complex topLeft, Graphics g) {
-        Complex current = new Complex(topLeft.getReal(), topLeft.getImaginary() + row * pixelIncrement);
-        java.util.List<Color> colors = new ArrayList<>(width);
-        for (int col = 0; col < width; col++) {
-            colors.add(color.determineColor(current));
-            log.trace("plotting ({},{}): {} -> {}", col, row, current, color);
-            current = new Complex(current.getReal() + pixelIncrement, current.getImaginary());
-        }
-        synchronized (this) {
-            for (int col = 0; col < width; col++) {
-                g.setColor(colors.get(col));
-                g.drawLine(col, row, col, row);
-            }
+    /**
+     * @return the number of pixels iterated over all calls of this strategy, which are all pixels of the rows that
+     * were computed before a cancellation
+     */
+    @Override
+    public long getComputedPixels() {
+        return computedPixels.sum();
+    }
+
+    private void plotRow(int row, int width, double pixelIncrement, double topLeftReal, double topLeftImaginary, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        if (isCancelled.getAsBoolean()) {
+            throw new CancellationException();
         }
+        kernel.computeIterations(topLeftReal, topLeftImaginary - row * pixelIncrement, pixelIncrement, width, 1, iterationField, offset + row * scanline, scanline);
+        computedPixels.add(width);
     }
 
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+
+import java.util.Locale;
+
+/**
+ * The plot strategies that can be selected on the command line.
+ */
+public enum PlotStrategyType {
+    RECTANGLES, BOUNDARY_TRACING, PARALLEL, DISTANCE_ESTIMATION;
+
+    public static PlotStrategyType parse(String type) {
+        try {
+            return valueOf(type.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown plot strategy: '" + type + "'");
+        }
+    }
+
+    public MandelbrotPlotStrategy create(IterationKernel kernel) {
+        return create(kernel, RenderExecutor.getDefault().getInteractive());
+    }
+
+    /**
+     * A strategy that renders on the given lane, e.g. the background lane for work nobody is waiting for on screen.
+     */
+    public MandelbrotPlotStrategy create(IterationKernel kernel, RenderExecutor.Lane lane) {
+        switch (this) {
+            case RECTANGLES:
+                return new RecursivelyDetectEnclosedRectanglesPlotStrategy(kernel, lane);
+            case BOUNDARY_TRACING:
+                return new BoundaryTracingPlotStrategy(kernel, lane);
+            case PARALLEL:
+                return new ParallelPlotStrategy(kernel, lane);
+            case DISTANCE_ESTIMATION:
+                return new DistanceEstimationPlotStrategy(kernel, lane);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+}
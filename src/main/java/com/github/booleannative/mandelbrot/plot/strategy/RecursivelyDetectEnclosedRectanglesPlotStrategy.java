@@ -17,44 +17,102 @@
 
 package com.github.booleannative.mandelbrot.plot.strategy;
 
-import com.github.booleannative.mandelbrot.color.MandelbrotCoordinateColorCalculator;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.complex.Complex;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 import static java.lang.Math.ceil;
 import static java.lang.Math.floor;
 
+/**
+ * Computes the border of a rectangle and fills its inside without iterating, if every border pixel needed the same
+ * number of iterations. Otherwise, the inside is split into four quadrants that are handled the same way. This relies on
+ * the areas of the same dwell being connected, so structures too thin to touch any border pixel can be missed. Kernels
+ * that are not {@link IterationKernel#isConnected() connected} are computed completely instead.
+ */
 @RequiredArgsConstructor
 @Slf4j
 public class RecursivelyDetectEnclosedRectanglesPlotStrategy implements MandelbrotPlotStrategy {
-    private final MandelbrotCoordinateColorCalculator color;
-    private final boolean debugEnclosedRectangleDetection = System.getProperty("debugEnclosedRectangleDetection") != null;
+    public static final int DEFAULT_MINIMUM_TILE_SIZE = 32;
+    // passed instead of the iterations to fill with, while the inside of a rectangle still has to be computed
+    private static final int NO_FILL = Integer.MIN_VALUE;
+    private final IterationKernel kernel;
+    private final RenderExecutor.Lane lane;
+    private final boolean debugEnclosedRectangleDetection = MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+    /**
+     * Rectangles whose width and height are both not larger than this are painted sequentially by the current thread,
+     * larger ones are split into four quadrant tasks that are painted in parallel.
+     */
+    @Setter
+    private int minimumTileSize = Integer.getInteger("minimumTileSize", DEFAULT_MINIMUM_TILE_SIZE);
+    private final LongAdder computedPixels = new LongAdder();
+
+    /**
+     * A strategy that renders on the interactive lane of the default {@link RenderExecutor}.
+     */
+    public RecursivelyDetectEnclosedRectanglesPlotStrategy(IterationKernel kernel) {
+        this(kernel, RenderExecutor.getDefault().getInteractive());
+    }
 
     @Override
-    public void paintManelbrot(Complex center, int width, int height, double pixelIncrement, Graphics g) {
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        paintManelbrotImage(center, width, height, pixelIncrement, image);
-        g.drawImage(image, 0, 0, (img, flags, x, y, w, h) -> false);
-        log.debug("mandelbrot painted: w: {} h: {}", width, height);
+    public void computeIterations(Complex center, int width, int height, double pixelIncrement, int[] iterationField, int offset, int scanline, BooleanSupplier isCancelled) {
+        if (!kernel.isConnected()) {
+            // islands of another dwell may lie inside of a uniform border
+            log.debug("{} is not connected, computing all pixels", kernel.getClass().getSimpleName());
+            ParallelPlotStrategy parallel = new ParallelPlotStrategy(kernel, lane);
+            parallel.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+            computedPixels.add(parallel.getComputedPixels());
+            return;
+        }
+        double topLeftReal = center.getReal() - width * pixelIncrement / 2d;
+        double topLeftImaginary = center.getImaginary() + height * pixelIncrement / 2d;
+        Point screenTopLeft = new Point(offset % scanline, offset / scanline);
+        long computedPixelsBefore = computedPixels.sum();
+        BooleanSupplier checkpoint = lane.checkpoint(isCancelled);
+        lane.invoke(() -> paintRectangles(screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, checkpoint, NO_FILL));
+        log.debug("mandelbrot computed: w: {} h: {}, iterated {} pixels", width, height, computedPixels.sum() - computedPixelsBefore);
     }
 
-    protected void paintManelbrotImage(Complex center, int width, int height, double pixelIncrement, BufferedImage image) {
-        paintRectangles(new Point(0, 0), center.add(new Complex(-width * pixelIncrement / 2d, height * pixelIncrement / 2d)), width, height, pixelIncrement, image, false);
+    /**
+     * @return the number of pixels that were iterated instead of filled, over all calls of this strategy
+     */
+    @Override
+    public long getComputedPixels() {
+        return computedPixels.sum();
     }
 
-    private void paintRectangles(Point screenTopLeft, Complex topLeft, int width, int height, double pixelIncrement, BufferedImage image, boolean isFill) {
+    private void paintRectangles(Point screenTopLeft, double topLeftReal, double topLeftImaginary, int width, int height, double pixelIncrement, int[] iterationField, int scanline, BooleanSupplier isCancelled, int fillIterations) {
         if (width < 1 || height < 1) {
             return;
         }
-        IntStream.rangeClosed(1, 4).parallel().forEach(i -> paintQuadrant(i, screenTopLeft, topLeft, width, height, pixelIncrement, image, isFill));
+        if (width <= minimumTileSize && height <= minimumTileSize) {
+            for (int quadrant = 1; quadrant <= 4; quadrant++) {
+                paintQuadrant(quadrant, screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, isCancelled, fillIterations);
+            }
+            return;
+        }
+        ForkJoinTask.invokeAll(
+                new PaintQuadrantAction(1, screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, isCancelled, fillIterations),
+                new PaintQuadrantAction(2, screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, isCancelled, fillIterations),
+                new PaintQuadrantAction(3, screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, isCancelled, fillIterations),
+                new PaintQuadrantAction(4, screenTopLeft, topLeftReal, topLeftImaginary, width, height, pixelIncrement, iterationField, scanline, isCancelled, fillIterations));
     }
 
-    private void paintQuadrant(int quadrant, Point parentScreenTopLeft, Complex parentTopLeft, int parentWidth, int parentHeight, double pixelIncrement, BufferedImage image, boolean isFill) {
+    private void paintQuadrant(int quadrant, Point parentScreenTopLeft, double parentTopLeftReal, double parentTopLeftImaginary, int parentWidth, int parentHeight, double pixelIncrement, int[] iterationField, int scanline, BooleanSupplier isCancelled, int fillIterations) {
+        if (isCancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
         int topLeftOffsetX;
         int topLeftOffsetY;
         int width;
@@ -91,7 +149,8 @@ public class RecursivelyDetectEnclosedRectanglesPlotStrategy implements Mandelbr
             return;
         }
         Point screenTopLeft = new Point(parentScreenTopLeft.x + topLeftOffsetX, parentScreenTopLeft.y + topLeftOffsetY);
-        Complex topLeft = parentTopLeft.add(new Complex(topLeftOffsetX * pixelIncrement, -topLeftOffsetY * pixelIncrement));
+        double topLeftReal = parentTopLeftReal + topLeftOffsetX * pixelIncrement;
+        double topLeftImaginary = parentTopLeftImaginary - topLeftOffsetY * pixelIncrement;
         int screenLeftX = screenTopLeft.x;
         int screenRightX = screenTopLeft.x + width - 1;
         int screenTopY = screenTopLeft.y;
@@ -99,62 +158,99 @@ public class RecursivelyDetectEnclosedRectanglesPlotStrategy implements Mandelbr
         if (log.isTraceEnabled()) {
             log.trace("painting quadrant: {} Screentopleft: {}} w: {}} h: {}", quadrant, screenTopLeft, width, height);
             log.trace("screenLeftX: {} screenRightX: {} screenTopY: {} screenBottomY: {}", screenLeftX, screenRightX, screenTopY, screenBottomY);
-            log.trace("topLeft: {}", topLeft);
+            log.trace("topLeft: ({}, {})", topLeftReal, topLeftImaginary);
+        }
+        drawHorizontalLines(width, screenLeftX, screenTopY, screenBottomY, pixelIncrement, topLeftReal, topLeftImaginary, iterationField, scanline, fillIterations);
+        drawVerticalLines(height, screenLeftX, screenTopY, screenRightX, pixelIncrement, topLeftReal, topLeftImaginary, iterationField, scanline, fillIterations);
+        if (fillIterations == NO_FILL) {
+            fillIterations = uniformBorderIterations(screenLeftX, screenRightX, screenTopY, screenBottomY, iterationField, scanline);
         }
-        boolean horizontalAllMandelbrot = drawHorizontalLines(width, screenLeftX, screenTopY, screenBottomY, pixelIncrement, topLeft, image, isFill);
-        boolean verticalAllMandelbrot = drawVerticalLines(height, screenLeftX, screenTopY, screenRightX, pixelIncrement, topLeft, image, isFill);
-        isFill = isFill || (horizontalAllMandelbrot && verticalAllMandelbrot);
-        paintRectangles(new Point(screenTopLeft.x + 1, screenTopLeft.y + 1), topLeft.add(new Complex(pixelIncrement, -pixelIncrement)), width - 2, height - 2, pixelIncrement, image, isFill);
+        paintRectangles(new Point(screenTopLeft.x + 1, screenTopLeft.y + 1), topLeftReal + pixelIncrement, topLeftImaginary - pixelIncrement, width - 2, height - 2, pixelIncrement, iterationField, scanline, isCancelled, fillIterations);
     }
 
-    private boolean drawVerticalLines(int height, int screenLeftX, int screenTopY, int screenRightX, double pixelIncrement, Complex topLeft, BufferedImage image, boolean isFill) {
-        boolean isAllPointsInMandelbrot = true;
-        Complex leftPosition = topLeft.add(new Complex(0d, -pixelIncrement));
-        Complex rightPosition = topLeft.add(new Complex(pixelIncrement * (screenRightX - screenLeftX), -pixelIncrement));
+    private void drawVerticalLines(int height, int screenLeftX, int screenTopY, int screenRightX, double pixelIncrement, double topLeftReal, double topLeftImaginary, int[] iterationField, int scanline, int fillIterations) {
         //start at topY+1 and use height-2, as corner point are already drawn in horizontal lines
-        int screenY = screenTopY + 1;
-        for (int i = 0; i < height - 2; i++) {
-            isAllPointsInMandelbrot=plotPixel(leftPosition,isAllPointsInMandelbrot,isFill,screenLeftX,screenY,image);
-            if (screenLeftX != screenRightX) {
-                isAllPointsInMandelbrot=plotPixel(rightPosition,isAllPointsInMandelbrot,isFill,screenRightX,screenY,image);
-            }
-            screenY++;
-            leftPosition = leftPosition.subtract(new Complex(0d, pixelIncrement));
-            rightPosition = rightPosition.subtract(new Complex(0d, pixelIncrement));
+        if (height <= 2) {
+            return;
+        }
+        drawVerticalLine(height - 2, screenLeftX, screenTopY + 1, pixelIncrement, topLeftReal, topLeftImaginary - pixelIncrement, iterationField, scanline, fillIterations);
+        if (screenLeftX != screenRightX) {
+            double rightReal = topLeftReal + pixelIncrement * (screenRightX - screenLeftX);
+            drawVerticalLine(height - 2, screenRightX, screenTopY + 1, pixelIncrement, rightReal, topLeftImaginary - pixelIncrement, iterationField, scanline, fillIterations);
         }
-        return isAllPointsInMandelbrot;
     }
 
-    private boolean drawHorizontalLines(int width, int screenLeftX, int screenTopY, int screenBottomY, double pixelIncrement, Complex topLeft, BufferedImage image, boolean isFill) {
-        boolean isAllPointsInMandelbrot = true;
-        Complex topPosition = topLeft;
-        Complex bottomPosition = topLeft.add(new Complex(0d, -pixelIncrement * (screenBottomY - screenTopY)));
-        int screenX = screenLeftX;
-        for (int i = 0; i < width; i++) {
-            isAllPointsInMandelbrot=plotPixel(topPosition,isAllPointsInMandelbrot,isFill,screenX,screenTopY,image);
-            if (screenTopY != screenBottomY) {
-                isAllPointsInMandelbrot=plotPixel(bottomPosition,isAllPointsInMandelbrot,isFill,screenX,screenBottomY,image);
+    // a vertical line is calculated in one call as a grid of a single column, like a horizontal line
+    private void drawVerticalLine(int height, int screenX, int screenTopY, double pixelIncrement, double real, double topImaginary, int[] iterationField, int scanline, int fillIterations) {
+        int offset = screenTopY * scanline + screenX;
+        if (fillIterations != NO_FILL) {
+            for (int y = 0; y < height; y++) {
+                iterationField[offset + y * scanline] = fillIterations;
             }
-            screenX++;
-            topPosition = topPosition.add(pixelIncrement);
-            bottomPosition = bottomPosition.add(pixelIncrement);
+            return;
         }
-        return isAllPointsInMandelbrot;
+        kernel.computeIterations(real, topImaginary, pixelIncrement, 1, height, iterationField, offset, scanline);
+        computedPixels.add(height);
     }
 
-    private boolean plotPixel(Complex complexCoordinates, boolean isAllPointsInMandelbrot, boolean isFill, int x, int y, BufferedImage image) {
-        Color color = determineColor(complexCoordinates, isFill);
-        image.setRGB(x, y, color.getRGB());
-        return isAllPointsInMandelbrot && (isFill || color.equals(Color.BLACK));
+    private void drawHorizontalLines(int width, int screenLeftX, int screenTopY, int screenBottomY, double pixelIncrement, double topLeftReal, double topLeftImaginary, int[] iterationField, int scanline, int fillIterations) {
+        drawHorizontalLine(width, screenLeftX, screenTopY, pixelIncrement, topLeftReal, topLeftImaginary, iterationField, scanline, fillIterations);
+        if (screenTopY != screenBottomY) {
+            double bottomImaginary = topLeftImaginary - pixelIncrement * (screenBottomY - screenTopY);
+            drawHorizontalLine(width, screenLeftX, screenBottomY, pixelIncrement, topLeftReal, bottomImaginary, iterationField, scanline, fillIterations);
+        }
     }
 
-    private Color determineColor(Complex position, boolean isFill) {
-        if (isFill) {
-            if (debugEnclosedRectangleDetection) {
-                return Color.PINK;
+    // a horizontal line is calculated in one call, so the kernel can iterate several of its points at once
+    private void drawHorizontalLine(int width, int screenLeftX, int screenY, double pixelIncrement, double leftReal, double imaginary, int[] iterationField, int scanline, int fillIterations) {
+        int offset = screenY * scanline + screenLeftX;
+        if (fillIterations != NO_FILL) {
+            Arrays.fill(iterationField, offset, offset + width, fillIterations);
+            return;
+        }
+        kernel.computeIterations(leftReal, imaginary, pixelIncrement, width, 1, iterationField, offset, scanline);
+        computedPixels.add(width);
+    }
+
+    /**
+     * @return the iterations to fill the inside of the rectangle with, if all pixels of its border needed the same
+     * number of iterations, otherwise {@link #NO_FILL}
+     */
+    private int uniformBorderIterations(int screenLeftX, int screenRightX, int screenTopY, int screenBottomY, int[] iterationField, int scanline) {
+        int iterations = iterationField[screenTopY * scanline + screenLeftX];
+        for (int x = screenLeftX; x <= screenRightX; x++) {
+            if (iterationField[screenTopY * scanline + x] != iterations || iterationField[screenBottomY * scanline + x] != iterations) {
+                return NO_FILL;
             }
-            return Color.BLACK;
         }
-        return color.determineColor(position);
+        for (int y = screenTopY + 1; y < screenBottomY; y++) {
+            if (iterationField[y * scanline + screenLeftX] != iterations || iterationField[y * scanline + screenRightX] != iterations) {
+                return NO_FILL;
+            }
+        }
+        if (debugEnclosedRectangleDetection) {
+            return MandelbrotColorCalculator.ENCLOSED_DEBUG_ITERATIONS;
+        }
+        return iterations;
+    }
+
+    @RequiredArgsConstructor
+    private class PaintQuadrantAction extends RecursiveAction {
+        private final int quadrant;
+        private final Point parentScreenTopLeft;
+        private final double parentTopLeftReal;
+        private final double parentTopLeftImaginary;
+        private final int parentWidth;
+        private final int parentHeight;
+        private final double pixelIncrement;
+        private final int[] iterationField;
+        private final int scanline;
+        private final BooleanSupplier isCancelled;
+        private final int fillIterations;
+
+        @Override
+        protected void compute() {
+            paintQuadrant(quadrant, parentScreenTopLeft, parentTopLeftReal, parentTopLeftImaginary, parentWidth, parentHeight, pixelIncrement, iterationField, scanline, isCancelled, fillIterations);
+        }
     }
 }
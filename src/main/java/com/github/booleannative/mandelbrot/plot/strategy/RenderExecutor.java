@@ -0,0 +1,280 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the parallel parts of rendering on fork/join pools of its own, so rendering neither competes with nor is slowed
+ * down by other users of the common pool, and the number of threads can be chosen.
+ * <p>
+ * Work is submitted through one of two lanes with a pool each. The interactive lane renders the frames of the window,
+ * the background lane everything that nobody is looking at yet, such as batch images, map tiles or prefetching.
+ * Background work only starts while no interactive work is running, and background work that is already running
+ * pauses at its next cancellation check until the interactive work is done. So an interactive frame gets all threads
+ * after at most one rectangle, tile or row of background work.
+ * <p>
+ * The default executor uses as many threads as there are cores (system property {@code renderThreads}) and is
+ * published as the MXBean {@value #OBJECT_NAME}.
+ */
+@Slf4j
+public class RenderExecutor implements RenderExecutorMXBean {
+    public static final String OBJECT_NAME = "com.github.booleannative.mandelbrot:type=RenderExecutor";
+    private static RenderExecutor defaultExecutor;
+    @Getter
+    private final int threads;
+    @Getter
+    private final Lane interactive;
+    @Getter
+    private final Lane background;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final long startNanos = System.nanoTime();
+    // guarded by this
+    private int runningInteractive;
+
+    public RenderExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("the number of render threads has to be positive");
+        }
+        this.threads = threads;
+        interactive = new Lane("interactive", Thread.NORM_PRIORITY, true);
+        background = new Lane("background", Thread.MIN_PRIORITY, false);
+    }
+
+    public static synchronized RenderExecutor getDefault() {
+        if (defaultExecutor == null) {
+            configureDefault(Integer.getInteger("renderThreads", Runtime.getRuntime().availableProcessors()));
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Creates the default executor with the given number of threads, before anything is rendered.
+     */
+    public static synchronized void configureDefault(int threads) {
+        if (defaultExecutor != null) {
+            throw new IllegalStateException("the render executor is already running with " + defaultExecutor.getThreads() + " threads");
+        }
+        defaultExecutor = new RenderExecutor(threads);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(defaultExecutor, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            log.warn("render executor statistics are not published over JMX: {}", e.toString());
+        }
+        log.info("rendering with {} threads", threads);
+    }
+
+    /**
+     * The cpu time used so far by each live worker thread of both lanes, by thread name. Comparing two snapshots shows
+     * how evenly the work was spread over the workers. Empty if the JVM does not measure the cpu time of threads.
+     */
+    public Map<String, Long> getWorkerCpuNanos() {
+        Map<String, Long> cpuNanos = new TreeMap<>();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+            return cpuNanos;
+        }
+        for (Iterator<Thread> live = workers.iterator(); live.hasNext(); ) {
+            Thread worker = live.next();
+            if (worker.getState() == Thread.State.TERMINATED) {
+                // idle workers are retired by the pool
+                live.remove();
+                continue;
+            }
+            long nanos = threadBean.getThreadCpuTime(worker.getId());
+            if (nanos >= 0) {
+                cpuNanos.put(worker.getName(), nanos);
+            }
+        }
+        return cpuNanos;
+    }
+
+    @Override
+    public long getInteractiveQueueDepth() {
+        return interactive.getQueueDepth();
+    }
+
+    @Override
+    public long getBackgroundQueueDepth() {
+        return background.getQueueDepth();
+    }
+
+    @Override
+    public double getInteractiveUtilization() {
+        return interactive.getUtilization();
+    }
+
+    @Override
+    public double getBackgroundUtilization() {
+        return background.getUtilization();
+    }
+
+    @Override
+    public long getInteractiveInvocations() {
+        return interactive.getInvocations();
+    }
+
+    @Override
+    public long getBackgroundInvocations() {
+        return background.getInvocations();
+    }
+
+    private synchronized void enterInteractive() {
+        runningInteractive++;
+    }
+
+    private synchronized void exitInteractive() {
+        if (--runningInteractive == 0) {
+            notifyAll();
+        }
+    }
+
+    private synchronized void awaitNoInteractive() {
+        boolean interrupted = false;
+        while (runningInteractive > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A pool of worker threads with a priority.
+     */
+    public class Lane {
+        @Getter
+        private final String name;
+        private final ForkJoinPool pool;
+        private final boolean interactiveLane;
+        private final LongAdder invocations = new LongAdder();
+        private final AtomicInteger waiting = new AtomicInteger();
+        // guarded by this
+        private int running;
+        private long busySinceNanos;
+        private long busyNanos;
+
+        private Lane(String name, int priority, boolean interactiveLane) {
+            this.name = name;
+            this.interactiveLane = interactiveLane;
+            AtomicInteger workerNumber = new AtomicInteger();
+            pool = new ForkJoinPool(threads, forkJoinPool -> {
+                ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                worker.setName("render-" + name + "-" + workerNumber.incrementAndGet());
+                worker.setPriority(priority);
+                workers.add(worker);
+                return worker;
+            }, null, false);
+        }
+
+        /**
+         * Runs the task on the workers of this lane and waits for it. Parallel streams within the task run on them as well.
+         * Background tasks wait until no interactive task is running.
+         */
+        public void invoke(Runnable task) {
+            if (interactiveLane) {
+                enterInteractive();
+            } else {
+                waiting.incrementAndGet();
+                awaitNoInteractive();
+                waiting.decrementAndGet();
+            }
+            invocations.increment();
+            startRunning();
+            try {
+                pool.invoke(ForkJoinTask.adapt(task));
+            } finally {
+                stopRunning();
+                if (interactiveLane) {
+                    exitInteractive();
+                }
+            }
+        }
+
+        /**
+         * Wraps the cancellation check of a task of this lane. In the background lane, it first waits while interactive
+         * tasks are running.
+         */
+        public BooleanSupplier checkpoint(BooleanSupplier isCancelled) {
+            if (interactiveLane) {
+                return isCancelled;
+            }
+            return () -> {
+                awaitNoInteractive();
+                return isCancelled.getAsBoolean();
+            };
+        }
+
+        /**
+         * Tasks waiting for a worker, and invocations waiting for the interactive lane to become idle.
+         */
+        public long getQueueDepth() {
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount() + waiting.get();
+        }
+
+        /**
+         * The share of the time since the executor was created in which this lane was running tasks.
+         */
+        public synchronized double getUtilization() {
+            long now = System.nanoTime();
+            long busy = busyNanos + (running > 0 ? now - busySinceNanos : 0);
+            return now == startNanos ? 0 : busy / (double) (now - startNanos);
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        public int getActiveThreads() {
+            return pool.getActiveThreadCount();
+        }
+
+        private synchronized void startRunning() {
+            if (running++ == 0) {
+                busySinceNanos = System.nanoTime();
+            }
+        }
+
+        private synchronized void stopRunning() {
+            if (--running == 0) {
+                busyNanos += System.nanoTime() - busySinceNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.server;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * A map tile in the XYZ scheme of slippy maps. At zoom level 0 a single tile covers the square of side length
+ * {@link #WORLD_SIZE} around the world center, each further level splits every tile into four.
+ */
+@Data
+public class TileKey {
+    public static final int TILE_SIZE = 256;
+    public static final int MAX_ZOOM = 100;
+    public static final BigDecimal WORLD_CENTER_REAL = BigDecimal.valueOf(-0.5);
+    public static final BigDecimal WORLD_CENTER_IMAGINARY = BigDecimal.ZERO;
+    public static final BigDecimal WORLD_SIZE = BigDecimal.valueOf(4);
+
+    private final int zoom;
+    private final long x;
+    private final long y;
+    private final int iterations;
+
+    public static boolean isValid(int zoom, long x, long y) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            return false;
+        }
+        BigDecimal tiles = BigDecimal.valueOf(2).pow(zoom);
+        return x >= 0 && y >= 0 && BigDecimal.valueOf(x).compareTo(tiles) < 0 && BigDecimal.valueOf(y).compareTo(tiles) < 0;
+    }
+
+    // exact, as the side length is a power of two
+    public BigDecimal getSideLength() {
+        return WORLD_SIZE.divide(BigDecimal.valueOf(2).pow(zoom));
+    }
+
+    public double getPixelIncrement() {
+        return getSideLength().doubleValue() / TILE_SIZE;
+    }
+
+    public BigDecimal getCenterReal() {
+        BigDecimal side = getSideLength();
+        return WORLD_CENTER_REAL.subtract(WORLD_SIZE.divide(BigDecimal.valueOf(2))).add(side.multiply(BigDecimal.valueOf(x).add(BigDecimal.valueOf(0.5))));
+    }
+
+    public BigDecimal getCenterImaginary() {
+        BigDecimal side = getSideLength();
+        return WORLD_CENTER_IMAGINARY.add(WORLD_SIZE.divide(BigDecimal.valueOf(2))).subtract(side.multiply(BigDecimal.valueOf(y).add(BigDecimal.valueOf(0.5))));
+    }
+}
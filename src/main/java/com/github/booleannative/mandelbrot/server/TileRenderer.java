@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.server;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.plot.FrameBuffer;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import lombok.Getter;
+import org.apache.commons.math3.complex.Complex;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Renders map tiles to png images. Every tile is rendered with a {@link MandelbrotSet} of its own, so tiles can be
+ * rendered concurrently. With a {@link TileStore}, the iteration counts are looked up there before iterating and
+ * stored after iterating, the tile is colored afterwards either way. Tiles are rendered on the background lane of the
+ * default {@link RenderExecutor}, so a window in the same JVM stays responsive.
+ */
+public class TileRenderer {
+    private final PlotStrategyType strategyType;
+    @Getter
+    private final TileStore tileStore;
+    private final MandelbrotColorCalculator color = new MandelbrotColorCalculator(new MandelbrotSet());
+    // debug tiles mark the filled pixels instead of their iterations, so they are neither stored nor taken from the store
+    private final boolean storeEnabled = !MandelbrotPlotStrategy.isDebugEnclosedRectangleDetection();
+
+    public TileRenderer(PlotStrategyType strategyType) {
+        this(strategyType, null);
+    }
+
+    public TileRenderer(PlotStrategyType strategyType, TileStore tileStore) {
+        this.strategyType = strategyType;
+        this.tileStore = tileStore;
+    }
+
+    public byte[] render(TileKey key) {
+        int[] iterations = computeIterations(key);
+        FrameBuffer frameBuffer = new FrameBuffer(TileKey.TILE_SIZE, TileKey.TILE_SIZE);
+        color.determineRGB(iterations, 0, key.getIterations(), frameBuffer.getPixels(), 0, iterations.length);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(frameBuffer.getImage(), "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+    public int[] computeIterations(TileKey key) {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(key.getIterations());
+        // tiles computed with different arithmetic or strategies are kept apart, as filling strategies may miss a few pixels
+        String variant = "mandelbrot-" + mandelbrotSet.selectPrecision(key.getCenterReal(), key.getCenterImaginary(), key.getPixelIncrement(), TileKey.TILE_SIZE, TileKey.TILE_SIZE)
+                .name().toLowerCase(Locale.ROOT) + "-" + strategyType.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        if (storeEnabled && tileStore != null) {
+            int[] stored = tileStore.get(key, variant);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        Complex center = mandelbrotSet.prepareView(key.getCenterReal(), key.getCenterImaginary(), key.getPixelIncrement(), TileKey.TILE_SIZE, TileKey.TILE_SIZE);
+        int[] iterations = new int[TileKey.TILE_SIZE * TileKey.TILE_SIZE];
+        strategyType.create(mandelbrotSet, RenderExecutor.getDefault().getBackground()).computeIterations(center, TileKey.TILE_SIZE, TileKey.TILE_SIZE, key.getPixelIncrement(), iterations);
+        if (storeEnabled && tileStore != null) {
+            tileStore.put(key, variant, iterations);
+        }
+        return iterations;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.server;
+
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves map tiles at {@code /{z}/{x}/{y}.png}, optionally with {@code ?iterations=n}, and its counters at {@code /metrics}.
+ * <p>
+ * Tiles are rendered by a fixed number of threads with a bounded queue. Requests for a tile that is already being
+ * rendered wait for that rendering instead of starting another one. When the queue is full, requests are answered with
+ * 503 and a Retry-After header, so clients back off instead of piling up.
+ */
+@Slf4j
+public class TileServer implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final Pattern TILE_PATH = Pattern.compile("/(\\d{1,3})/(\\d{1,18})/(\\d{1,18})\\.png");
+    private static final Pattern ITERATIONS_PARAMETER = Pattern.compile("(?:^|&)iterations=(\\d{1,9})(?:&|$)");
+    private static final int MAX_ITERATIONS = 1_000_000;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final TileRenderer renderer;
+    private final int defaultIterations;
+    private final ThreadPoolExecutor renderExecutor;
+    private final ExecutorService requestExecutor = Executors.newCachedThreadPool(daemonThreads("tile-server-request"));
+    private final Map<TileKey, CompletableFuture<byte[]>> renderingTiles = new ConcurrentHashMap<>();
+    private final HttpServer httpServer;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder renderedTiles = new LongAdder();
+    private final LongAdder sharedRenderings = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder servedTiles = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final long startTime = System.nanoTime();
+
+    public TileServer(TileRenderer renderer, int port, int renderThreads, int queueCapacity, int defaultIterations) throws IOException {
+        this.renderer = renderer;
+        this.defaultIterations = defaultIterations;
+        this.renderExecutor = new ThreadPoolExecutor(renderThreads, renderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("tile-server-render"), new ThreadPoolExecutor.AbortPolicy());
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        httpServer.setExecutor(requestExecutor);
+        httpServer.createContext("/metrics", this::serveMetrics);
+        httpServer.createContext("/", this::serveTile);
+        httpServer.start();
+        log.info("serving tiles on port {} with {} render threads", getPort(), renderThreads);
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        renderExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+
+    private void serveTile(HttpExchange exchange) throws IOException {
+        long requestStart = System.nanoTime();
+        requests.increment();
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "only GET is supported");
+                return;
+            }
+            Matcher path = TILE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!path.matches()) {
+                sendText(exchange, 404, "expected /{z}/{x}/{y}.png");
+                return;
+            }
+            int zoom = Integer.parseInt(path.group(1));
+            long x = Long.parseLong(path.group(2));
+            long y = Long.parseLong(path.group(3));
+            int iterations = parseIterations(exchange.getRequestURI().getRawQuery());
+            if (!TileKey.isValid(zoom, x, y) || iterations < 1 || iterations > MAX_ITERATIONS) {
+                sendText(exchange, 400, "no such tile");
+                return;
+            }
+            byte[] png;
+            try {
+                png = render(new TileKey(zoom, x, y, iterations)).get();
+            } catch (RejectedExecutionException e) {
+                sendRetryLater(exchange);
+                return;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    // the rendering this request was waiting for was rejected
+                    sendRetryLater(exchange);
+                    return;
+                }
+                failedRequests.increment();
+                log.error("rendering tile {}/{}/{} failed", zoom, x, y, e.getCause());
+                sendText(exchange, 500, "rendering failed");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, png.length);
+            exchange.getResponseBody().write(png);
+            servedTiles.increment();
+            long latency = System.nanoTime() - requestStart;
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendRetryLater(HttpExchange exchange) throws IOException {
+        rejectedRequests.increment();
+        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+        sendText(exchange, 503, "too many tiles are being rendered");
+    }
+
+    private int parseIterations(String query) {
+        if (query == null) {
+            return defaultIterations;
+        }
+        Matcher parameter = ITERATIONS_PARAMETER.matcher(query);
+        return parameter.find() ? Integer.parseInt(parameter.group(1)) : defaultIterations;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the render queue is full
+     */
+    private CompletableFuture<byte[]> render(TileKey key) {
+        CompletableFuture<byte[]> rendering = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = renderingTiles.putIfAbsent(key, rendering);
+        if (running != null) {
+            sharedRenderings.increment();
+            return running;
+        }
+        try {
+            renderExecutor.execute(() -> {
+                try {
+                    byte[] png = renderer.render(key);
+                    renderedTiles.increment();
+                    rendering.complete(png);
+                } catch (RuntimeException e) {
+                    rendering.completeExceptionally(e);
+                } finally {
+                    renderingTiles.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            renderingTiles.remove(key);
+            rendering.completeExceptionally(e);
+            throw e;
+        }
+        return rendering;
+    }
+
+    private void serveMetrics(HttpExchange exchange) throws IOException {
+        try {
+            long served = servedTiles.sum();
+            double uptimeSeconds = (System.nanoTime() - startTime) / 1e9;
+            String metrics = "tile_requests " + requests.sum() + "\n"
+                    + "tiles_served " + served + "\n"
+                    + "tiles_rendered " + renderedTiles.sum() + "\n"
+                    + "tile_renderings_shared " + sharedRenderings.sum() + "\n"
+                    + "tile_requests_rejected " + rejectedRequests.sum() + "\n"
+                    + "tile_requests_failed " + failedRequests.sum() + "\n"
+                    + "tiles_served_per_second " + (served / uptimeSeconds) + "\n"
+                    + "tile_latency_average_ms " + (served == 0 ? 0 : latencyNanos.sum() / served / 1e6) + "\n"
+                    + "tile_latency_max_ms " + (maxLatencyNanos.get() / 1e6) + "\n"
+                    + "render_queue_length " + renderExecutor.getQueue().size() + "\n"
+                    + "render_threads_active " + renderExecutor.getActiveCount() + "\n"
+                    + lanes(RenderExecutor.getDefault());
+            TileStore tileStore = renderer.getTileStore();
+            if (tileStore != null) {
+                metrics += "tile_store_hits " + tileStore.getHits() + "\n"
+                        + "tile_store_misses " + tileStore.getMisses() + "\n"
+                        + "tile_store_evictions " + tileStore.getEvictions() + "\n"
+                        + "tile_store_bytes " + tileStore.getSizeBytes() + "\n";
+            }
+            sendText(exchange, 200, metrics);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String lanes(RenderExecutor executor) {
+        String metrics = "";
+        for (RenderExecutor.Lane lane : new RenderExecutor.Lane[]{executor.getInteractive(), executor.getBackground()}) {
+            String prefix = "render_" + lane.getName() + "_";
+            metrics += prefix + "queue_depth " + lane.getQueueDepth() + "\n"
+                    + prefix + "threads_active " + lane.getActiveThreads() + "\n"
+                    + prefix + "utilization " + lane.getUtilization() + "\n";
+        }
+        return metrics;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.booleannative.mandelbrot.server;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the iteration counts of rendered tiles on disk, so revisiting a tile neither iterates again nor depends on the
+ * JVM that rendered it. Each tile is a file of its own below {@code <variant>-<iterations>/<zoom>/}, where the variant
+ * names whatever changes the iteration counts, like the kernel, its precision and the plot strategy. A file holds the
+ * big-endian ints tile size and maximum number of iterations, followed by the iteration counts row by row.
+ * Files are read through memory mappings, written to a temporary file first and then moved into place, so readers
+ * never see a partially written tile.
+ * <p>
+ * The total size is capped, the tiles used least recently are deleted first. The last use of a tile is its file's
+ * modification time, so the order survives restarts. Tiles that cannot be written, e.g. as the disk is full, are
+ * only logged, they are computed again the next time.
+ */
+@Slf4j
+public class TileStore {
+    private static final String SUFFIX = ".tile";
+    private static final int HEADER_INTS = 2;
+    private final Path directory;
+    private final long maxBytes;
+    // access ordered, the least recently used tile first
+    private final LinkedHashMap<Path, Long> tileSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TileStore(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        List<Path> tiles;
+        try (Stream<Path> files = Files.walk(directory)) {
+            tiles = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX) || deleteTemporary(file))
+                    .sorted(Comparator.comparing(TileStore::lastModified))
+                    .collect(Collectors.toList());
+        }
+        for (Path tile : tiles) {
+            long size = Files.size(tile);
+            tileSizes.put(tile, size);
+            totalBytes += size;
+        }
+        log.info("tile store {} holds {} tiles, {} MB", directory, tileSizes.size(), totalBytes / (1024 * 1024));
+        evict();
+    }
+
+    /**
+     * @return the iteration counts of the tile computed by the given variant, or null if it is not stored
+     */
+    public int[] get(TileKey key, String variant) {
+        Path file = file(key, variant);
+        synchronized (this) {
+            if (tileSizes.get(file) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntBuffer tile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+            if (tile.get(0) != TileKey.TILE_SIZE || tile.get(1) != key.getIterations() || tile.limit() != HEADER_INTS + TileKey.TILE_SIZE * TileKey.TILE_SIZE) {
+                throw new IOException("unexpected header");
+            }
+            int[] iterations = new int[TileKey.TILE_SIZE * TileKey.TILE_SIZE];
+            tile.position(HEADER_INTS);
+            tile.get(iterations);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return iterations;
+        } catch (IOException e) {
+            // evicted in the meantime or corrupt, it is computed again and replaced
+            log.debug("reading tile {} failed: {}", file, e.toString());
+            remove(file);
+            misses.increment();
+            return null;
+        }
+    }
+
+    public void put(TileKey key, String variant, int[] iterations) {
+        Path file = file(key, variant);
+        ByteBuffer tile = ByteBuffer.allocate((HEADER_INTS + iterations.length) * Integer.BYTES);
+        tile.asIntBuffer().put(TileKey.TILE_SIZE).put(key.getIterations()).put(iterations);
+        Path temporary = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (tile.hasRemaining()) {
+                    channel.write(tile);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the tile is still served, storing it is only a shortcut for the next request
+            log.warn("storing tile {} failed: {}", file, e.toString());
+            if (temporary != null) {
+                deleteTemporary(temporary);
+            }
+            return;
+        }
+        synchronized (this) {
+            Long replaced = tileSizes.put(file, (long) tile.capacity());
+            totalBytes += tile.capacity() - (replaced == null ? 0 : replaced);
+            evict();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    private Path file(TileKey key, String variant) {
+        return directory.resolve(variant + "-" + key.getIterations()).resolve(Integer.toString(key.getZoom())).resolve(key.getX() + "-" + key.getY() + SUFFIX);
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<Path, Long>> leastRecentlyUsed = tileSizes.entrySet().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Map.Entry<Path, Long> tile = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            totalBytes -= tile.getValue();
+            evictions.increment();
+            try {
+                Files.deleteIfExists(tile.getKey());
+            } catch (IOException e) {
+                log.warn("deleting tile {} failed: {}", tile.getKey(), e.toString());
+            }
+        }
+    }
+
+    private synchronized void remove(Path file) {
+        Long size = tileSizes.remove(file);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    // left over by a crash while a tile was written
+    private static boolean deleteTemporary(Path file) {
+        if (file.getFileName().toString().endsWith(".tmp")) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("deleting {} failed: {}", file, e.toString());
+            }
+        }
+        return false;
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot;
+
+import com.github.booleannative.mandelbrot.kernel.IterationKernel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.math3.complex.Complex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the iteration fields of the plot strategies with the iterations the kernel computes for every pixel.
+ */
+public final class IterationAssertions {
+    private IterationAssertions() {
+    }
+
+    /**
+     * The views the filling strategies are compared with the kernel on, each {@link #WIDTH}x{@link #HEIGHT} pixels with
+     * {@link #ITERATIONS} iterations: the whole set, the filaments of the seahorse valley and an exterior region near the
+     * antenna.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum CanonicalView {
+        WHOLE_SET(new Complex(-0.5, 0), 0.004d),
+        SEAHORSE_VALLEY(new Complex(-0.745, 0.1), 0.0001d),
+        ANTENNA(new Complex(-1.8, 0.02), 0.0002d);
+
+        public static final int WIDTH = 750;
+        public static final int HEIGHT = 500;
+        public static final int ITERATIONS = 500;
+
+        private final Complex center;
+        private final double pixelIncrement;
+    }
+
+    /**
+     * @return the iterations of every pixel of the view, computed by the kernel in a single grid
+     */
+    public static int[] computeDirectly(IterationKernel kernel, Complex center, int width, int height, double pixelIncrement) {
+        int[] iterations = new int[width * height];
+        kernel.computeIterations(center.getReal() - width * pixelIncrement / 2d, center.getImaginary() + height * pixelIncrement / 2d,
+                pixelIncrement, width, height, iterations, 0, width);
+        return iterations;
+    }
+
+    public static int countDifferentPixels(int[] expected, int[] actual) {
+        assertEquals(expected.length, actual.length, "size of the iteration fields");
+        int differentPixels = 0;
+        for (int pixel = 0; pixel < expected.length; pixel++) {
+            if (expected[pixel] != actual[pixel]) {
+                differentPixels++;
+            }
+        }
+        return differentPixels;
+    }
+
+    /**
+     * For strategies that may miss structures thinner than a pixel, e.g. a filament crossing an outline between two of
+     * its pixels.
+     */
+    public static void assertFewerDifferentPixels(int[] expected, int[] actual, int maximumDifferentPixels, String message) {
+        int differentPixels = countDifferentPixels(expected, actual);
+        assertTrue(differentPixels < maximumDifferentPixels, differentPixels + " pixels differ " + message);
+    }
+
+    /**
+     * Asserts that only isolated pixels differ: pixels whose eight neighbours all needed the same number of iterations,
+     * which the actual field has for the isolated pixel as well. No contour leads to such a pixel, so a strategy that
+     * fills the areas enclosed by contours cannot find it without computing every pixel.
+     */
+    public static void assertEqualExceptIsolatedPixels(int[] expected, int[] actual, int width, String message) {
+        assertEquals(expected.length, actual.length, "size of the iteration fields");
+        int height = expected.length / width;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+                if (expected[pixel] != actual[pixel]) {
+                    assertTrue(isIsolated(expected, width, height, x, y, actual[pixel]),
+                            "pixel " + x + "," + y + " needs " + expected[pixel] + " iterations, not " + actual[pixel] + " " + message);
+                }
+            }
+        }
+    }
+
+    private static boolean isIsolated(int[] iterations, int width, int height, int x, int y, int neighbourIterations) {
+        if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+            return false;
+        }
+        for (int neighbourY = y - 1; neighbourY <= y + 1; neighbourY++) {
+            for (int neighbourX = x - 1; neighbourX <= x + 1; neighbourX++) {
+                if ((neighbourX != x || neighbourY != y) && iterations[neighbourY * width + neighbourX] != neighbourIterations) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -17,11 +17,17 @@
 
 package com.github.booleannative.mandelbrot;
 
+import com.github.booleannative.mandelbrot.kernel.Precision;
 import org.apache.commons.math3.complex.Complex;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class MandelbrotSetTest {
 
@@ -34,4 +40,94 @@ class MandelbrotSetTest {
         assertTrue(new MandelbrotSet().isMemberOfMandelbrotSet(new Complex(0.1, -0.3)));
         assertTrue(new MandelbrotSet().isMemberOfMandelbrotSet(new Complex(0, -0.5)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBulkIterationsMatchSinglePointCalculation() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        int width = 37;
+        int height = 23;
+        double pixelIncrement = 0.1d;
+        int[] iterations = new int[width * height];
+        mandelbrotSet.computeIterations(-2d, 1.1d, pixelIncrement, width, height, iterations);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(mandelbrotSet.computeIterations(-2d + x * pixelIncrement, 1.1d - y * pixelIncrement), iterations[y * width + x]);
+            }
+        }
+    }
+
+    @Test
+    void testInteriorAndPeriodicityChecksDoNotChangeResults() {
+        MandelbrotSet plain = new MandelbrotSet();
+        plain.setInteriorCheck(false);
+        plain.setPeriodicityCheck(false);
+        MandelbrotSet optimized = new MandelbrotSet();
+        optimized.setInteriorCheck(true);
+        optimized.setPeriodicityCheck(true);
+        for (double real = -2.1d; real < 0.6d; real += 0.0123d) {
+            for (double imaginary = -1.2d; imaginary < 1.2d; imaginary += 0.0123d) {
+                assertEquals(plain.computeIterations(real, imaginary), optimized.computeIterations(real, imaginary), "(" + real + ", " + imaginary + ")");
+            }
+        }
+    }
+
+    @Test
+    void testInteriorCheck() {
+        assertTrue(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(0, 0));
+        assertTrue(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(0.24, 0));
+        assertTrue(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(-1, 0.2));
+        assertFalse(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(0.26, 0));
+        assertFalse(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(-1.26, 0));
+        assertFalse(MandelbrotSet.isInMainCardioidOrPeriod2Bulb(-0.75, 0.1));
+    }
+
+    @Test
+    void testVectorKernelMatchesScalarKernel() {
+        MandelbrotSet vector = new MandelbrotSet();
+        vector.setVectorKernel(true);
+        // only available when built with -PvectorKernel
+        assumeTrue(vector.isVectorKernel(), "the vector kernel is not built");
+        MandelbrotSet scalar = new MandelbrotSet();
+        scalar.setVectorKernel(false);
+        for (boolean checks : new boolean[]{true, false}) {
+            vector.setInteriorCheck(checks);
+            vector.setPeriodicityCheck(checks);
+            vector.setFloatPrecision(!checks);
+            scalar.setInteriorCheck(checks);
+            scalar.setPeriodicityCheck(checks);
+            scalar.setFloatPrecision(!checks);
+            int width = 203;
+            int height = 151;
+            int[] expected = new int[width * height];
+            int[] actual = new int[width * height];
+            scalar.computeIterations(-2.1d, 1.2d, 0.016d, width, height, expected);
+            vector.computeIterations(-2.1d, 1.2d, 0.016d, width, height, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testPrecisionSelection() {
+        assertEquals(Precision.FLOAT, Precision.select(0.004d, 2d, 100));
+        assertEquals(Precision.DOUBLE, Precision.select(0.004d, 2d, 1000));
+        assertEquals(Precision.FLOAT, Precision.select(0.016d, 2d, 1000));
+        assertEquals(Precision.DOUBLE, Precision.select(1e-6d, 2d, 1000));
+        assertEquals(Precision.DOUBLE_DOUBLE, Precision.select(1e-10d, 2d, 100_000));
+        assertEquals(Precision.DOUBLE_DOUBLE, Precision.select(1e-14d, 2d, 1000));
+        assertEquals(Precision.DOUBLE_DOUBLE, Precision.select(1e-27d, 0.5d, 100));
+        assertEquals(Precision.PERTURBATION, Precision.select(1e-27d, 0.5d, 1000));
+        assertEquals(Precision.PERTURBATION, Precision.select(1e-40d, 2d, 1000));
+
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        Complex center = mandelbrotSet.prepareView(new BigDecimal("-0.75"), new BigDecimal("0.1"), 1e-20d, 750, 500);
+        assertEquals(Precision.DOUBLE_DOUBLE, mandelbrotSet.getPrecision());
+        assertEquals(0d, center.getReal());
+        center = mandelbrotSet.prepareView(new BigDecimal("-0.75").add(new BigDecimal("4e-19")), new BigDecimal("0.1"), 1e-20d, 750, 500);
+        assertEquals(4e-19d, center.getReal(), 1e-30d);
+        mandelbrotSet.prepareView(new BigDecimal("-0.5"), BigDecimal.ZERO, 0.004d, 750, 500);
+        assertEquals(Precision.DOUBLE, mandelbrotSet.getPrecision());
+        mandelbrotSet.setIterations(100);
+        mandelbrotSet.prepareView(new BigDecimal("-0.5"), BigDecimal.ZERO, 0.004d, 750, 500);
+        assertEquals(Precision.FLOAT, mandelbrotSet.getPrecision());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnimationRendererTest {
+
+    @Test
+    void framesStartAtTheStartViewAndEndAtTheTarget() {
+        AnimationJob job = job(6, 1000d, AnimationJob.Easing.EASE_IN_OUT, new File("frames"), AnimationJob.FrameFormat.PNG);
+        assertEquals(0.01d, job.getPixelIncrement(0), 1e-15);
+        assertEquals(0, new BigDecimal("-0.5").compareTo(job.getCenterReal(0)));
+        assertEquals(0.00001d, job.getPixelIncrement(5), 1e-15);
+        assertEquals(-0.7453d, job.getCenterReal(5).doubleValue(), 1e-12);
+        assertEquals(0.1127d, job.getCenterImaginary(5).doubleValue(), 1e-12);
+        for (int frame = 1; frame < 6; frame++) {
+            assertTrue(job.getPixelIncrement(frame) < job.getPixelIncrement(frame - 1));
+        }
+        assertEquals(new File("frames", "frame-00003.png"), job.getOutput(3));
+    }
+
+    @Test
+    void rawRgbFramesMatchTheirViews() throws IOException {
+        Path directory = Files.createTempDirectory("animation");
+        try {
+            AnimationJob job = job(7, 20d, AnimationJob.Easing.LINEAR, directory.toFile(), AnimationJob.FrameFormat.RGB);
+            AnimationRenderer renderer = new AnimationRenderer(PlotStrategyType.PARALLEL);
+            renderer.setFrameSeeding(false);
+            renderer.render(job);
+
+            MandelbrotSet mandelbrotSet = new MandelbrotSet();
+            mandelbrotSet.setIterations(job.getIterations());
+            MandelbrotColorCalculator color = new MandelbrotColorCalculator(mandelbrotSet);
+            for (int frame = 0; frame < job.getFrames(); frame++) {
+                byte[] rgb = Files.readAllBytes(job.getOutput(frame).toPath());
+                assertEquals(job.getWidth() * job.getHeight() * 3, rgb.length);
+                double increment = job.getPixelIncrement(frame);
+                mandelbrotSet.prepareView(job.getCenterReal(frame), job.getCenterImaginary(frame), increment, job.getWidth(), job.getHeight());
+                double left = job.getCenterReal(frame).doubleValue() - job.getWidth() * increment / 2d;
+                double top = job.getCenterImaginary(frame).doubleValue() + job.getHeight() * increment / 2d;
+                for (int y = 0; y < job.getHeight(); y++) {
+                    for (int x = 0; x < job.getWidth(); x++) {
+                        int expected = color.determineRGB(mandelbrotSet.computeIterations(left + x * increment, top - y * increment), job.getIterations());
+                        int i = (y * job.getWidth() + x) * 3;
+                        assertEquals(expected & 0xffffff, (rgb[i] & 0xff) << 16 | (rgb[i + 1] & 0xff) << 8 | rgb[i + 2] & 0xff, "frame " + frame + " pixel " + x + "," + y);
+                    }
+                }
+            }
+            assertEquals(0, renderer.getSeededTiles());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void zoomingInSeedsFramesFromTheFollowingOnes() throws IOException {
+        Path seededDirectory = Files.createTempDirectory("animation");
+        Path computedDirectory = Files.createTempDirectory("animation");
+        try {
+            AnimationJob seededJob = job(40, 2d, AnimationJob.Easing.LINEAR, seededDirectory.toFile(), AnimationJob.FrameFormat.PNG);
+            AnimationRenderer seeded = new AnimationRenderer(PlotStrategyType.PARALLEL);
+            seeded.render(seededJob);
+            AnimationJob computedJob = job(40, 2d, AnimationJob.Easing.LINEAR, computedDirectory.toFile(), AnimationJob.FrameFormat.PNG);
+            AnimationRenderer computed = new AnimationRenderer(PlotStrategyType.PARALLEL);
+            computed.setFrameSeeding(false);
+            computed.render(computedJob);
+
+            assertTrue(seeded.getSeededTiles() > seeded.getTotalTiles() / 3, seeded.getSeededTiles() + " of " + seeded.getTotalTiles() + " tiles seeded");
+            long differentPixels = 0;
+            for (int frame = 0; frame < seededJob.getFrames(); frame++) {
+                BufferedImage seededFrame = ImageIO.read(seededJob.getOutput(frame));
+                BufferedImage computedFrame = ImageIO.read(computedJob.getOutput(frame));
+                assertEquals(seededJob.getWidth(), seededFrame.getWidth());
+                assertEquals(seededJob.getHeight(), seededFrame.getHeight());
+                for (int y = 0; y < seededFrame.getHeight(); y++) {
+                    for (int x = 0; x < seededFrame.getWidth(); x++) {
+                        differentPixels += seededFrame.getRGB(x, y) == computedFrame.getRGB(x, y) ? 0 : 1;
+                    }
+                }
+            }
+            long pixels = (long) seededJob.getFrames() * seededJob.getWidth() * seededJob.getHeight();
+            assertTrue(differentPixels < pixels / 10, differentPixels + " of " + pixels + " pixels differ");
+        } finally {
+            delete(seededDirectory);
+            delete(computedDirectory);
+        }
+    }
+
+    private static AnimationJob job(int frames, double zoomFactor, AnimationJob.Easing easing, File outputDirectory, AnimationJob.FrameFormat format) {
+        return new AnimationJob(new BigDecimal("-0.5"), BigDecimal.ZERO, 0.01d, new BigDecimal("-0.7453"), new BigDecimal("0.1127"),
+                zoomFactor, frames, easing, 320, 192, 300, outputDirectory, format);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.batch;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.DoubleDoubleKernel;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRendererTest {
+
+    @Test
+    void checkRawIterationDump() throws IOException {
+        File output = Files.createTempFile("mandelbrot", ".raw").toFile();
+        try {
+            RenderJob job = RenderJob.parse("-0.5 0.25 0.01 31 17 200 " + output.getPath());
+            assertEquals(RenderJob.Format.RAW, job.getFormat());
+            new BatchRenderer().render(job);
+
+            MandelbrotSet mandelbrotSet = new MandelbrotSet();
+            mandelbrotSet.setIterations(200);
+            // in the precision of the view
+            mandelbrotSet.prepareView(new BigDecimal("-0.5"), new BigDecimal("0.25"), 0.01d, 31, 17);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+                assertEquals(31, in.readInt());
+                assertEquals(17, in.readInt());
+                assertEquals(200, in.readInt());
+                for (int y = 0; y < 17; y++) {
+                    for (int x = 0; x < 31; x++) {
+                        assertEquals(mandelbrotSet.computeIterations(-0.5d - 31 * 0.01d / 2d + x * 0.01d, 0.25d + 17 * 0.01d / 2d - y * 0.01d), in.readInt());
+                    }
+                }
+                assertEquals(-1, in.read());
+            }
+        } finally {
+            output.delete();
+        }
+    }
+
+    @Test
+    void deepViewsAreRenderedWithTheirPrecision() throws IOException {
+        File output = Files.createTempFile("mandelbrot", ".raw").toFile();
+        try {
+            // c = i is on the boundary of the set, and the increment is far below the resolution of double around it
+            new BatchRenderer().render(RenderJob.parse("0 1 1e-18 40 30 2000 " + output.getPath()));
+
+            DoubleDoubleKernel kernel = new DoubleDoubleKernel(BigDecimal.ZERO, BigDecimal.ONE, 1e-18d);
+            Set<Integer> distinct = new HashSet<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+                assertEquals(40, in.readInt());
+                assertEquals(30, in.readInt());
+                assertEquals(2000, in.readInt());
+                for (int y = 0; y < 30; y++) {
+                    for (int x = 0; x < 40; x++) {
+                        int iterations = in.readInt();
+                        assertEquals(kernel.computeIterations(-40 * 1e-18d / 2d + x * 1e-18d, 30 * 1e-18d / 2d - y * 1e-18d, 2000), iterations, "at " + x + ", " + y);
+                        distinct.add(iterations);
+                    }
+                }
+            }
+            // in double precision, all pixels would collapse to a few values
+            assertTrue(distinct.size() > 10, distinct.toString());
+        } finally {
+            output.delete();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.color;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MandelbrotColorCalculatorTest {
+
+    @Test
+    void testPaletteMatchesColorFormula() {
+        MandelbrotColorCalculator color = new MandelbrotColorCalculator(new MandelbrotSet());
+        for (int maxIterations : new int[]{100, 1000}) {
+            for (int iterationsNeeded = 1; iterationsNeeded < maxIterations; iterationsNeeded++) {
+                float colorFactor = 1.0f - (float) (Math.log(iterationsNeeded) / Math.log(maxIterations));
+                assertEquals(Color.HSBtoRGB(colorFactor * 0.5f + 0.4f, 0.4f, 1 - (colorFactor / 2.0f)), color.determineRGB(iterationsNeeded, maxIterations));
+            }
+            assertEquals(Color.BLACK.getRGB(), color.determineRGB(maxIterations, maxIterations));
+        }
+    }
+
+    @Test
+    void testPaletteIsRebuiltWhenColorParametersChange() {
+        MandelbrotColorCalculator color = new MandelbrotColorCalculator(new MandelbrotSet());
+        int before = color.determineRGB(10, 1000);
+        color.shiftBaseColor();
+        int shifted = color.determineRGB(10, 1000);
+        assertNotEquals(before, shifted);
+        color.increaseSaturation();
+        assertNotEquals(shifted, color.determineRGB(10, 1000));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.distributed;
+
+import com.github.booleannative.mandelbrot.IterationAssertions;
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.booleannative.mandelbrot.IterationAssertions.assertFewerDifferentPixels;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedPlotStrategyTest {
+    private static final int WIDTH = 331;
+    private static final int HEIGHT = 217;
+    private static final Complex CENTER = new Complex(-0.745, 0.1);
+    private static final double PIXEL_INCREMENT = 0.0002d;
+
+    @Test
+    void tilesAreStitchedTogether() throws IOException {
+        try (TileWorker first = new TileWorker(PlotStrategyType.RECTANGLES, 0);
+             TileWorker second = new TileWorker(PlotStrategyType.BOUNDARY_TRACING, 0)) {
+            assertRendersView(List.of(address(first.getPort()), address(second.getPort())), 60_000);
+        }
+    }
+
+    @Test
+    void tilesOfDeadAndHangingWorkersAreReassigned() throws IOException {
+        int deadPort;
+        try (ServerSocket dead = new ServerSocket(0)) {
+            deadPort = dead.getLocalPort();
+        }
+        // accepts connections, but never answers
+        try (ServerSocket hanging = new ServerSocket(0);
+             TileWorker worker = new TileWorker(PlotStrategyType.RECTANGLES, 0)) {
+            assertRendersView(List.of(address(deadPort), address(hanging.getLocalPort()), address(worker.getPort())), 1_000);
+        }
+    }
+
+    @Test
+    void tilesAreComputedWithThePrecisionOfTheView() throws IOException {
+        // small tiles of this view would be computed with float precision on their own
+        Complex center = new Complex(-0.5, 0.3);
+        double pixelIncrement = 0.004d;
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        assertEquals(Precision.FLOAT, mandelbrotSet.selectPrecision(BigDecimal.valueOf(-0.5), BigDecimal.valueOf(0.3), pixelIncrement, 64, 64));
+        assertEquals(Precision.DOUBLE, mandelbrotSet.getPrecision());
+        try (TileWorker worker = new TileWorker(PlotStrategyType.PARALLEL, 0)) {
+            DistributedPlotStrategy strategy = new DistributedPlotStrategy(mandelbrotSet, List.of(address(worker.getPort())));
+            strategy.setTileSize(64);
+            int[] iterationField = new int[WIDTH * HEIGHT];
+            strategy.computeIterations(center, WIDTH, HEIGHT, pixelIncrement, iterationField);
+
+            int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, center, WIDTH, HEIGHT, pixelIncrement);
+            // tiles are views of their own, so a few of their points are rounded differently, float precision changes hundreds
+            assertFewerDifferentPixels(expected, iterationField, WIDTH * HEIGHT / 5000, "with the precision of the view");
+        }
+    }
+
+    @Test
+    void deepTilesAreSentWithAbsoluteCoordinates() throws IOException {
+        // c = i is on the boundary of the set, and the increment is far below the resolution of double around it
+        double pixelIncrement = 1e-18d;
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(2000);
+        Complex center = mandelbrotSet.prepareView(BigDecimal.ZERO, BigDecimal.ONE, pixelIncrement, 96, 64);
+        assertEquals(Precision.DOUBLE_DOUBLE, mandelbrotSet.getPrecision());
+        try (TileWorker worker = new TileWorker(PlotStrategyType.PARALLEL, 0)) {
+            DistributedPlotStrategy strategy = new DistributedPlotStrategy(mandelbrotSet, List.of(address(worker.getPort())));
+            strategy.setTileSize(32);
+            int[] iterationField = new int[96 * 64];
+            strategy.computeIterations(center, 96, 64, pixelIncrement, iterationField);
+
+            int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, center, 96, 64, pixelIncrement);
+            // each tile is relative to its own reference point, so a few of its points are rounded differently
+            assertFewerDifferentPixels(expected, iterationField, 96 * 64 / 1000, "with absolute tile coordinates");
+        }
+    }
+
+    @Test
+    void cancellingClosesTheConnections() throws Exception {
+        // accepts a connection and reads until the coordinator closes it, but never answers
+        try (ServerSocket hanging = new ServerSocket(0)) {
+            CountDownLatch closed = new CountDownLatch(1);
+            Thread reader = new Thread(() -> {
+                try (Socket socket = hanging.accept()) {
+                    InputStream in = socket.getInputStream();
+                    while (in.read() >= 0) {
+                        // the request is ignored
+                    }
+                    closed.countDown();
+                } catch (IOException e) {
+                    closed.countDown();
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+            DistributedPlotStrategy strategy = new DistributedPlotStrategy(new MandelbrotSet(), List.of(address(hanging.getLocalPort())));
+            long cancelTime = System.currentTimeMillis() + 500;
+            assertThrows(CancellationException.class, () -> strategy.computeIterations(CENTER, WIDTH, HEIGHT, PIXEL_INCREMENT, new int[WIDTH * HEIGHT], 0, WIDTH,
+                    () -> System.currentTimeMillis() > cancelTime));
+            assertTrue(closed.await(5, TimeUnit.SECONDS), "the connection is still open");
+        }
+    }
+
+    @Test
+    void workersRejectOversizedTiles() throws IOException {
+        try (TileWorker worker = new TileWorker(PlotStrategyType.PARALLEL, 0);
+             Socket socket = new Socket("localhost", worker.getPort())) {
+            socket.setSoTimeout(5_000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            TileProtocol.writeRequest(out, new TileRequest(0, BigDecimal.ZERO, BigDecimal.ZERO, 0.001d, 40_000, 40_000, 100, Precision.DOUBLE));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private static void assertRendersView(List<InetSocketAddress> workers, int tileTimeoutMillis) {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        DistributedPlotStrategy strategy = new DistributedPlotStrategy(mandelbrotSet, workers);
+        strategy.setTileSize(64);
+        strategy.setTileTimeoutMillis(tileTimeoutMillis);
+        int[] iterationField = new int[WIDTH * HEIGHT];
+        strategy.computeIterations(CENTER, WIDTH, HEIGHT, PIXEL_INCREMENT, iterationField);
+
+        int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, CENTER, WIDTH, HEIGHT, PIXEL_INCREMENT);
+        // the workers fill enclosed rectangles, which may miss filaments thinner than a pixel
+        assertFewerDifferentPixels(expected, iterationField, WIDTH * HEIGHT / 200, "after stitching");
+    }
+
+    private static InetSocketAddress address(int port) {
+        return InetSocketAddress.createUnresolved("localhost", port);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceEstimatorTest {
+
+    @Test
+    void iterationsMatchTheDoubleKernel() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(500);
+        DistanceEstimator estimator = new DistanceEstimator();
+        for (int y = -100; y <= 100; y++) {
+            for (int x = -200; x <= 60; x++) {
+                assertEquals(mandelbrotSet.computeIterations(x * 0.01d, y * 0.01d), estimator.estimate(x * 0.01d, y * 0.01d, 500), "c = " + x * 0.01d + "," + y * 0.01d);
+            }
+        }
+    }
+
+    @Test
+    void exteriorDistanceIsALowerBoundOnTheRealAxis() {
+        DistanceEstimator estimator = new DistanceEstimator();
+        // the closest points of the set are 0.25 and -2
+        for (double c = 0.5d; c <= 2d; c += 0.125d) {
+            assertTrue(estimator.estimate(c, 0d, 1000) < 1000);
+            assertTrue(estimator.getDistance() <= c - 0.25d && estimator.getDistance() > (c - 0.25d) / 8, "distance " + estimator.getDistance() + " at " + c);
+        }
+        for (double c = -2.125d; c >= -3d; c -= 0.125d) {
+            assertTrue(estimator.estimate(c, 0d, 1000) < 1000);
+            assertTrue(estimator.getDistance() <= -2d - c && estimator.getDistance() > (-2d - c) / 8, "distance " + estimator.getDistance() + " at " + c);
+        }
+    }
+
+    @Test
+    void interiorDistanceOfTheCenterOfTheCardioid() {
+        DistanceEstimator estimator = new DistanceEstimator();
+        assertEquals(1000, estimator.estimate(0d, 0d, 1000));
+        // the fixed point 0 has the multiplier 0, the estimate is 1/2, its quarter is below the distance 1/4 to the cusp
+        assertEquals(0.125d, estimator.getDistance(), 1e-12);
+    }
+
+    @Test
+    void interiorDiscsOnlyContainMembers() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(5000);
+        DistanceEstimator estimator = new DistanceEstimator();
+        int discs = 0;
+        for (int y = 0; y <= 60; y++) {
+            for (int x = -100; x <= 20; x++) {
+                double cReal = x * 0.02d;
+                double cImaginary = y * 0.02d;
+                if (estimator.estimate(cReal, cImaginary, 5000) < 5000 || estimator.getDistance() == 0) {
+                    continue;
+                }
+                discs++;
+                double distance = estimator.getDistance();
+                for (int i = 0; i < 32; i++) {
+                    double angle = i * Math.PI / 16;
+                    assertEquals(5000, mandelbrotSet.computeIterations(cReal + 0.999d * distance * Math.cos(angle), cImaginary + 0.999d * distance * Math.sin(angle)),
+                            "disc of " + distance + " around " + cReal + "," + cImaginary);
+                }
+            }
+        }
+        // the main cardioid, the period 2 bulb and the larger bulbs around them
+        assertTrue(discs > 500, discs + " discs");
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoubleDoubleKernelTest {
+    private static final MathContext REFERENCE_CONTEXT = new MathContext(64);
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    @Test
+    void testMatchesBigDecimalBelowDoubleResolution() {
+        // c = i is on the boundary of the set, and the increment is far below the resolution of double around it
+        BigDecimal referenceReal = BigDecimal.ZERO;
+        BigDecimal referenceImaginary = BigDecimal.ONE;
+        double pixelIncrement = 1e-22d;
+        int iterations = 2000;
+        DoubleDoubleKernel kernel = new DoubleDoubleKernel(referenceReal, referenceImaginary, pixelIncrement);
+        Set<Integer> distinct = new HashSet<>();
+        for (int y = -6; y < 6; y++) {
+            for (int x = -6; x < 6; x++) {
+                double deltaReal = x * 37 * pixelIncrement;
+                double deltaImaginary = y * 37 * pixelIncrement;
+                int expected = computeIterations(referenceReal.add(new BigDecimal(deltaReal)), referenceImaginary.add(new BigDecimal(deltaImaginary)), iterations);
+                assertEquals(expected, kernel.computeIterations(deltaReal, deltaImaginary, iterations), "at " + x + ", " + y);
+                distinct.add(expected);
+            }
+        }
+        assertTrue(distinct.size() > 10);
+    }
+
+    /**
+     * The escape time loop of the double kernels in BigDecimal arithmetic.
+     */
+    private static int computeIterations(BigDecimal cReal, BigDecimal cImaginary, int iterations) {
+        BigDecimal zReal = BigDecimal.ZERO;
+        BigDecimal zImaginary = BigDecimal.ZERO;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            BigDecimal nextReal = zReal.multiply(zReal, REFERENCE_CONTEXT).subtract(zImaginary.multiply(zImaginary, REFERENCE_CONTEXT)).add(cReal, REFERENCE_CONTEXT);
+            if (nextReal.abs().compareTo(TWO) > 0) {
+                return iteration;
+            }
+            zImaginary = TWO.multiply(zReal).multiply(zImaginary, REFERENCE_CONTEXT).add(cImaginary, REFERENCE_CONTEXT);
+            zReal = nextReal;
+        }
+        return iterations;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import com.github.booleannative.mandelbrot.IterationAssertions;
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IterationKernelTest {
+
+    @Test
+    void juliaSetStartingAtZeroFollowsTheOrbitOfItsConstant() {
+        Multibrot mandelbrot = new Multibrot(2);
+        mandelbrot.setIterations(500);
+        for (int y = -20; y <= 20; y++) {
+            for (int x = -30; x <= 10; x++) {
+                double cReal = x * 0.05d;
+                double cImaginary = y * 0.05d;
+                JuliaSet juliaSet = new JuliaSet(cReal, cImaginary);
+                juliaSet.setIterations(500);
+                assertEquals(mandelbrot.computeIterations(cReal, cImaginary), juliaSet.computeIterations(0d, 0d), "c = " + cReal + "," + cImaginary);
+            }
+        }
+    }
+
+    @Test
+    void juliaSetOfZeroIsTheUnitDisk() {
+        JuliaSet juliaSet = new JuliaSet(0d, 0d);
+        juliaSet.setIterations(100);
+        assertEquals(100, juliaSet.computeIterations(0.5d, 0.5d));
+        assertEquals(100, juliaSet.computeIterations(0d, -0.99d));
+        assertTrue(juliaSet.computeIterations(0.8d, 0.8d) < 100);
+        assertTrue(juliaSet.computeIterations(-1.01d, 0d) < 100);
+    }
+
+    @Test
+    void burningShipIsTheMandelbrotSetOnTheRealAxis() {
+        BurningShip burningShip = new BurningShip();
+        Multibrot mandelbrot = new Multibrot(2);
+        for (int x = -250; x <= 50; x++) {
+            assertEquals(mandelbrot.computeIterations(x * 0.01d, 0d), burningShip.computeIterations(x * 0.01d, 0d), "c = " + x * 0.01d);
+        }
+        // the absolute values fold the orbit, unlike the Mandelbrot set, it is not symmetric to the real axis
+        assertNotEquals(burningShip.computeIterations(-1.75d, -0.03d), burningShip.computeIterations(-1.75d, 0.03d));
+    }
+
+    @Test
+    void multibrotIsSymmetricAccordingToItsPower() {
+        Multibrot multibrot = new Multibrot(3);
+        // z^3 + c has a twofold symmetry: c and -c have mirrored orbits
+        for (int y = -20; y <= 20; y++) {
+            for (int x = -20; x <= 20; x++) {
+                assertEquals(multibrot.computeIterations(x * 0.06d, y * 0.06d), multibrot.computeIterations(-x * 0.06d, -y * 0.06d));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Multibrot(1));
+    }
+
+    @Test
+    void gridMatchesThePoints() {
+        for (KernelType kernelType : KernelType.values()) {
+            IterationKernel kernel = kernelType.create();
+            kernel.setIterations(300);
+            int[] buffer = new int[5 + 40 * 64];
+            kernel.computeIterations(-1.5d, 1d, 0.05d, 60, 40, buffer, 5, 64);
+            for (int y = 0; y < 40; y++) {
+                for (int x = 0; x < 60; x++) {
+                    assertEquals(kernel.computeIterations(-1.5d + x * 0.05d, 1d - y * 0.05d), buffer[5 + y * 64 + x], kernelType + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void periodicityCheckDoesNotChangeTheIterations() {
+        for (DoublePrecisionKernel kernel : new DoublePrecisionKernel[]{new JuliaSet(-0.8d, 0.156d), new Multibrot(4), new BurningShip()}) {
+            kernel.setIterations(2000);
+            int[] checked = new int[100 * 80];
+            kernel.computeIterations(-1.6d, 1.2d, 0.03d, 100, 80, checked, 0, 100);
+            kernel.setPeriodicityCheck(false);
+            int[] unchecked = new int[100 * 80];
+            kernel.computeIterations(-1.6d, 1.2d, 0.03d, 100, 80, unchecked, 0, 100);
+            assertArrayEquals(unchecked, checked, kernel.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void juliaSetsAreConnectedIfTheirConstantIsInTheMandelbrotSet() {
+        assertTrue(new JuliaSet(JuliaSet.DEFAULT_CONSTANT_REAL, JuliaSet.DEFAULT_CONSTANT_IMAGINARY).isConnected());
+        assertTrue(new JuliaSet(-1d, 0d).isConnected());
+        assertFalse(new JuliaSet(-0.8d, 0.156d).isConnected());
+        assertFalse(new JuliaSet(0.26d, 0d).isConnected());
+        assertTrue(new MandelbrotSet().isConnected());
+        assertTrue(new Multibrot(3).isConnected());
+        assertFalse(new BurningShip().isConnected());
+    }
+
+    @Test
+    void fillingStrategiesRenderJuliaSetsExactly() {
+        for (JuliaSet juliaSet : new JuliaSet[]{new JuliaSet(JuliaSet.DEFAULT_CONSTANT_REAL, JuliaSet.DEFAULT_CONSTANT_IMAGINARY), new JuliaSet(-0.8d, 0.156d)}) {
+            juliaSet.setIterations(500);
+            int width = 400;
+            int height = 300;
+            double pixelIncrement = 0.008d;
+            int[] expected = IterationAssertions.computeDirectly(juliaSet, new Complex(0, 0), width, height, pixelIncrement);
+            for (PlotStrategyType type : new PlotStrategyType[]{PlotStrategyType.RECTANGLES, PlotStrategyType.BOUNDARY_TRACING}) {
+                MandelbrotPlotStrategy strategy = type.create(juliaSet);
+                int[] iterationField = new int[width * height];
+                strategy.computeIterations(new Complex(0, 0), width, height, pixelIncrement, iterationField);
+                String message = type + " with c = " + juliaSet.getConstantReal() + "," + juliaSet.getConstantImaginary();
+                assertArrayEquals(expected, iterationField, message);
+                if (!juliaSet.isConnected()) {
+                    assertEquals(width * height, strategy.getComputedPixels(), message);
+                } else {
+                    assertTrue(strategy.getComputedPixels() < width * height, message);
+                }
+            }
+        }
+    }
+}
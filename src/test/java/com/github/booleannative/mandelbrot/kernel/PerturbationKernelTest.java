@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerturbationKernelTest {
+
+    @Test
+    void testMatchesDoubleKernelAtShallowZoom() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(500);
+        mandelbrotSet.setInteriorCheck(false);
+        mandelbrotSet.setPeriodicityCheck(false);
+        PerturbationKernel kernel = new PerturbationKernel(new BigDecimal("-0.75"), new BigDecimal("0.1"), 0.001d, 500);
+        for (int y = -50; y < 50; y++) {
+            for (int x = -75; x < 75; x++) {
+                assertEquals(mandelbrotSet.computeIterations(-0.75d + x * 0.001d, 0.1d + y * 0.001d), kernel.computeIterations(x * 0.001d, y * 0.001d, 500));
+            }
+        }
+    }
+
+    @Test
+    void testResolvesPixelsBelowDoubleResolution() {
+        // c = i is on the boundary of the set, so there is structure at any zoom depth
+        PerturbationKernel kernel = new PerturbationKernel(BigDecimal.ZERO, BigDecimal.ONE, 1e-19d, 5000);
+        Set<Integer> iterations = new HashSet<>();
+        for (int y = -20; y < 20; y++) {
+            for (int x = -20; x < 20; x++) {
+                iterations.add(kernel.computeIterations(x * 1e-19d, y * 1e-19d, 5000));
+            }
+        }
+        assertTrue(iterations.size() > 10);
+    }
+}
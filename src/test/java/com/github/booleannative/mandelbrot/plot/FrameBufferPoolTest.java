@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameBufferPoolTest {
+
+    @Test
+    void buffersAreReusedUntilThePanelIsResized() {
+        FrameBufferPool pool = new FrameBufferPool();
+        pool.resize(40, 30);
+        FrameBuffer first = pool.acquire(40, 30, null);
+        FrameBuffer second = pool.acquire(40, 30, first);
+        assertNotSame(first, second);
+        assertSame(first, pool.acquire(40, 30, second));
+        assertSame(second, pool.acquire(40, 30, first));
+        // a preview is shown, none of the full size buffers is
+        FrameBuffer preview = pool.acquire(5, 4, second);
+        assertEquals(5, preview.getWidth());
+        assertEquals(5 * 4, preview.getPixels().length);
+        assertSame(first, pool.acquire(40, 30, preview));
+        assertEquals(3, pool.getAllocations());
+
+        pool.resize(40, 30);
+        assertSame(first, pool.acquire(40, 30, second));
+        pool.resize(50, 30);
+        assertNotSame(first, pool.acquire(40, 30, second));
+        assertEquals(4, pool.getAllocations());
+    }
+
+    @Test
+    void pixelsAreThePixelsOfTheImage() {
+        FrameBuffer buffer = new FrameBuffer(3, 2);
+        buffer.getPixels()[1 * 3 + 2] = 0x123456;
+        assertEquals(0x123456, buffer.getImage().getRGB(2, 1) & 0xffffff);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IterationCacheTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 192;
+    private static final Complex CENTER = new Complex(-0.75, 0.1);
+
+    @Test
+    void zoomingOutReusesTheFinerField() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        IterationCache cache = new IterationCache(Long.MAX_VALUE);
+        cache.put(compute(mandelbrotSet, 0.001d / 1.2d), Precision.DOUBLE);
+
+        IterationField zoomedOut = new IterationField(CENTER, 0.001d, WIDTH, HEIGHT, 300);
+        IterationField expected = compute(mandelbrotSet, 0.001d);
+        int columns = WIDTH / IterationCache.TILE_SIZE;
+        int rows = HEIGHT / IterationCache.TILE_SIZE;
+        int differentPixels = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int left = column * IterationCache.TILE_SIZE;
+                int top = row * IterationCache.TILE_SIZE;
+                // the finer field only covers the central 1/1.2 of the zoomed out view
+                boolean covered = left >= WIDTH / 12 && left + IterationCache.TILE_SIZE <= WIDTH - WIDTH / 12
+                        && top >= HEIGHT / 12 && top + IterationCache.TILE_SIZE <= HEIGHT - HEIGHT / 12;
+                assertEquals(covered, cache.fill(zoomedOut, Precision.DOUBLE, left, top, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE), "tile " + column + ", " + row);
+                for (int y = top; covered && y < top + IterationCache.TILE_SIZE; y++) {
+                    for (int x = left; x < left + IterationCache.TILE_SIZE; x++) {
+                        differentPixels += zoomedOut.getIterations()[y * WIDTH + x] == expected.getIterations()[y * WIDTH + x] ? 0 : 1;
+                    }
+                }
+            }
+        }
+        assertEquals(rows * columns, cache.getLookups());
+        assertTrue(cache.getHits() > 0);
+        // the reused pixels are up to half a pixel away from the computed ones, which changes about one in twenty of them
+        assertTrue(differentPixels < cache.getHits() * IterationCache.TILE_SIZE * IterationCache.TILE_SIZE / 16, differentPixels + " pixels differ");
+
+        // zooming in again needs a finer resolution than the cache has
+        IterationField zoomedIn = new IterationField(CENTER, 0.001d / 1.44d, WIDTH, HEIGHT, 300);
+        assertFalse(cache.fill(zoomedIn, Precision.DOUBLE, 128, 64, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE));
+        // neither are fields of another number of iterations nor float fields for double views
+        assertFalse(cache.fill(new IterationField(CENTER, 0.001d, WIDTH, HEIGHT, 400), Precision.DOUBLE, 128, 64, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE));
+        IterationCache floatCache = new IterationCache(Long.MAX_VALUE);
+        floatCache.put(compute(mandelbrotSet, 0.001d / 1.2d), Precision.FLOAT);
+        assertFalse(floatCache.fill(zoomedOut, Precision.DOUBLE, 128, 64, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE));
+        assertTrue(floatCache.fill(zoomedOut, Precision.FLOAT, 128, 64, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE));
+    }
+
+    @Test
+    void leastRecentlyUsedFieldsAreEvicted() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        IterationCache cache = new IterationCache(2L * WIDTH * HEIGHT * Integer.BYTES);
+        IterationField fine = compute(mandelbrotSet, 0.0005d);
+        cache.put(fine, Precision.DOUBLE);
+        cache.put(compute(mandelbrotSet, 0.0006d), Precision.DOUBLE);
+        IterationField target = new IterationField(CENTER, 0.001d, WIDTH, HEIGHT, 300);
+        assertTrue(cache.fill(target, Precision.DOUBLE, 144, 80, IterationCache.TILE_SIZE, IterationCache.TILE_SIZE));
+        cache.put(compute(mandelbrotSet, 0.0007d), Precision.DOUBLE);
+        assertEquals(1, cache.getEvictions());
+        cache.put(compute(mandelbrotSet, 0.0008d), Precision.DOUBLE);
+        assertEquals(2, cache.getEvictions());
+        cache.put(new IterationField(CENTER, 0.0001d, WIDTH, HEIGHT, 300), Precision.PERTURBATION);
+        assertEquals(2, cache.getEvictions());
+    }
+
+    private static IterationField compute(MandelbrotSet mandelbrotSet, double pixelIncrement) {
+        IterationField field = new IterationField(CENTER, pixelIncrement, WIDTH, HEIGHT, mandelbrotSet.getIterations());
+        mandelbrotSet.computeIterations(CENTER.getReal() - WIDTH * pixelIncrement / 2d, CENTER.getImaginary() + HEIGHT * pixelIncrement / 2d,
+                pixelIncrement, WIDTH, HEIGHT, field.getIterations(), 0, WIDTH);
+        return field;
+    }
+}
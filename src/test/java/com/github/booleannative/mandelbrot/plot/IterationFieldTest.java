@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IterationFieldTest {
+
+    @Test
+    void testCanBePannedTo() {
+        IterationField iterationField = new IterationField(new Complex(0, 0), 0.1d, 4, 3, 100);
+        assertTrue(iterationField.canBePannedTo(new Complex(0.3, -0.2), 0.1d, 4, 3, 100));
+        assertFalse(iterationField.canBePannedTo(new Complex(0.4, 0), 0.1d, 4, 3, 100));
+        assertFalse(iterationField.canBePannedTo(new Complex(0, 0.3), 0.1d, 4, 3, 100));
+        assertFalse(iterationField.canBePannedTo(new Complex(0.15, 0), 0.1d, 4, 3, 100));
+        assertFalse(iterationField.canBePannedTo(new Complex(0.1, 0), 0.05d, 4, 3, 100));
+        assertFalse(iterationField.canBePannedTo(new Complex(0.1, 0), 0.1d, 4, 3, 200));
+    }
+
+    @Test
+    void testCopyPannedPixels() {
+        IterationField last = new IterationField(new Complex(0, 0), 1d, 4, 3, 100);
+        for (int i = 0; i < last.getIterations().length; i++) {
+            last.getIterations()[i] = i;
+        }
+        // one pixel to the right and one pixel up
+        IterationField panned = new IterationField(new Complex(1, 1), 1d, 4, 3, 100);
+        Arrays.fill(panned.getIterations(), -5);
+        assertEquals(1, last.getPanX(panned.getCenter()));
+        assertEquals(-1, last.getPanY(panned.getCenter()));
+        last.copyPannedPixels(panned);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 4; x++) {
+                int expected = y >= 1 && x <= 2 ? (y - 1) * 4 + x + 1 : -5;
+                assertEquals(expected, panned.getIterations()[y * 4 + x]);
+            }
+        }
+    }
+
+    @Test
+    void oddRectanglesLineUpWithTheWholeField() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        IterationField whole = new IterationField(new Complex(-0.75, 0.1), 0.001d, 321, 193, 300);
+        mandelbrotSet.computeIterations(-0.75d - 321 * 0.001d / 2d, 0.1d + 193 * 0.001d / 2d, 0.001d, 321, 193, whole.getIterations(), 0, 321);
+        for (PlotStrategyType type : PlotStrategyType.values()) {
+            IterationField pieces = new IterationField(whole.getCenter(), 0.001d, 321, 193, 300);
+            // strips of odd sizes, as exposed by panning
+            pieces.compute(type.create(mandelbrotSet), 0, 0, 321, 7, () -> false);
+            pieces.compute(type.create(mandelbrotSet), 0, 7, 13, 186, () -> false);
+            pieces.compute(type.create(mandelbrotSet), 13, 7, 308, 186, () -> false);
+            for (int y = 0; y < 193; y++) {
+                for (int x = 0; x < 321; x++) {
+                    if (type == PlotStrategyType.PARALLEL || x == 0 || y == 0 || x == 320 || y == 192) {
+                        // every strategy computes the edges of a rectangle, the parallel strategy computes every pixel
+                        assertEquals(whole.getIterations()[y * 321 + x], pieces.getIterations()[y * 321 + x], type + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.color.MandelbrotColorCalculator;
+import com.github.booleannative.mandelbrot.plot.strategy.MandelbrotPlotStrategy;
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import com.github.booleannative.mandelbrot.plot.strategy.RenderExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MandelbrotPanelTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 192;
+    private static final Viewport VIEW = new Viewport(new BigDecimal("-0.75"), new BigDecimal("0.1"), 0.001d);
+
+    @Test
+    void prefetchedViewsAreOnlyColored() throws InterruptedException {
+        RenderExecutor executor = new RenderExecutor(2);
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        AtomicLong interactivePixels = new AtomicLong();
+        AtomicLong prefetchedPixels = new AtomicLong();
+        MandelbrotPanel panel = new MandelbrotPanel(counting(PlotStrategyType.RECTANGLES.create(mandelbrotSet, executor.getInteractive()), interactivePixels),
+                mandelbrotSet, new MandelbrotColorCalculator(mandelbrotSet), counting(PlotStrategyType.RECTANGLES.create(mandelbrotSet, executor.getBackground()), prefetchedPixels));
+        panel.setSize(WIDTH, HEIGHT);
+
+        Viewport zoomedIn = Navigation.ZOOM_IN.apply(VIEW);
+        plot(panel, VIEW, List.of(zoomedIn));
+        // the finer view cannot be taken from the cache, so all of its pixels are prefetched
+        awaitAtLeast(prefetchedPixels::get, (long) WIDTH * HEIGHT);
+        long interactivePixelsBefore = interactivePixels.get();
+
+        plot(panel, zoomedIn, List.of(Navigation.ZOOM_IN.apply(zoomedIn)));
+        // prefetching for the zoomed in view only starts once it is shown
+        awaitAtLeast(prefetchedPixels::get, (long) WIDTH * HEIGHT + 1);
+        assertEquals(interactivePixelsBefore, interactivePixels.get());
+    }
+
+    @Test
+    void requestingAFrameCancelsPrefetching() throws InterruptedException {
+        RenderExecutor executor = new RenderExecutor(2);
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        CountDownLatch prefetching = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        MandelbrotPlotStrategy endlessPrefetch = (center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled) -> {
+            prefetching.countDown();
+            while (!isCancelled.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            cancelled.countDown();
+            throw new CancellationException();
+        };
+        Viewport elsewhere = new Viewport(new BigDecimal("-1.25"), BigDecimal.ZERO, 0.002d);
+        CountDownLatch renderedElsewhere = new CountDownLatch(1);
+        MandelbrotPlotStrategy interactive = PlotStrategyType.RECTANGLES.create(mandelbrotSet, executor.getInteractive());
+        MandelbrotPanel panel = new MandelbrotPanel((center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled) -> {
+            interactive.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+            if (pixelIncrement == elsewhere.getPixelIncrement()) {
+                renderedElsewhere.countDown();
+            }
+        }, mandelbrotSet, new MandelbrotColorCalculator(mandelbrotSet), endlessPrefetch);
+        panel.setSize(WIDTH, HEIGHT);
+
+        plot(panel, VIEW, List.of(Navigation.LEFT.apply(VIEW)));
+        assertTrue(prefetching.await(10, TimeUnit.SECONDS));
+        plot(panel, elsewhere, List.of());
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertTrue(renderedElsewhere.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void iterationsChangeBetweenFramesOnly() throws InterruptedException {
+        RenderExecutor executor = new RenderExecutor(2);
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        CountDownLatch previewing = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        Set<Integer> firstFrameIterations = ConcurrentHashMap.newKeySet();
+        Set<Integer> secondFrameIterations = ConcurrentHashMap.newKeySet();
+        MandelbrotPlotStrategy interactive = PlotStrategyType.RECTANGLES.create(mandelbrotSet, executor.getInteractive());
+        MandelbrotPanel panel = new MandelbrotPanel((center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled) -> {
+            (previewing.getCount() > 0 || resume.getCount() > 0 ? firstFrameIterations : secondFrameIterations).add(mandelbrotSet.getIterations());
+            if (previewing.getCount() > 0) {
+                previewing.countDown();
+                // the next frame is requested while the first preview of this one is rendered
+                try {
+                    assertTrue(resume.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                firstFrameIterations.add(mandelbrotSet.getIterations());
+            }
+            interactive.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+        }, mandelbrotSet, new MandelbrotColorCalculator(mandelbrotSet), PlotStrategyType.RECTANGLES.create(mandelbrotSet, executor.getBackground()));
+        panel.setSize(WIDTH, HEIGHT);
+
+        plot(panel, VIEW, 200);
+        assertTrue(previewing.await(10, TimeUnit.SECONDS));
+        plot(panel, VIEW, 450);
+        resume.countDown();
+        awaitAtLeast(() -> panel.getLastIterationField() != null ? panel.getLastIterationField().getMaxIterations() : 0, 450);
+
+        assertEquals(Set.of(200), firstFrameIterations);
+        // the first frame was cancelled within its preview, the second one rendered its previews and the full frame
+        assertEquals(Set.of(450), secondFrameIterations);
+        assertEquals(450, mandelbrotSet.getIterations());
+    }
+
+    @Test
+    void debugFieldsAreNotReusedForOtherViews() throws InterruptedException {
+        System.setProperty("debugEnclosedRectangleDetection", "true");
+        try {
+            MandelbrotSet mandelbrotSet = new MandelbrotSet();
+            mandelbrotSet.setIterations(300);
+            MandelbrotPlotStrategy rectangles = PlotStrategyType.RECTANGLES.create(mandelbrotSet);
+            MandelbrotPanel panel = new MandelbrotPanel(rectangles, mandelbrotSet, new MandelbrotColorCalculator(mandelbrotSet), rectangles);
+            panel.setSize(WIDTH, HEIGHT);
+            Viewport panned = Navigation.LEFT.apply(VIEW);
+            for (Viewport view : List.of(VIEW, panned)) {
+                plot(panel, view, List.of());
+                awaitAtLeast(() -> panel.getLastIterationField() != null && panel.getLastIterationField().getCenter().getReal() == view.getCenterReal().doubleValue() ? 1 : 0, 1);
+            }
+            IterationField shown = panel.getLastIterationField();
+            assertFalse(shown.isSeeded());
+
+            // the marks of the panned view are those of its own rectangles, not shifted ones of the first view
+            int[] expected = new int[WIDTH * HEIGHT];
+            rectangles.computeIterations(shown.getCenter(), WIDTH, HEIGHT, shown.getPixelIncrement(), expected);
+            assertArrayEquals(expected, shown.getIterations());
+        } finally {
+            System.clearProperty("debugEnclosedRectangleDetection");
+        }
+    }
+
+    @Test
+    void zoomingOutTwiceSeedsFromComputedFieldsOnly() throws InterruptedException {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        MandelbrotPlotStrategy parallel = PlotStrategyType.PARALLEL.create(mandelbrotSet);
+        MandelbrotPanel panel = new MandelbrotPanel(parallel, mandelbrotSet, new MandelbrotColorCalculator(mandelbrotSet), parallel);
+        panel.setSize(WIDTH, HEIGHT);
+        // the seahorse valley, with structure in every tile
+        Viewport start = new Viewport(new BigDecimal("-0.7453"), new BigDecimal("0.1127"), 0.00002d);
+        Viewport zoomedOut = Navigation.ZOOM_OUT.apply(start);
+        Viewport zoomedOutTwice = Navigation.ZOOM_OUT.apply(zoomedOut);
+        for (Viewport view : List.of(start, zoomedOut, zoomedOutTwice)) {
+            plot(panel, view, List.of());
+            awaitAtLeast(() -> panel.getLastIterationField() != null && panel.getLastIterationField().getPixelIncrement() == view.getPixelIncrement() ? 1 : 0, 1);
+        }
+        IterationField shown = panel.getLastIterationField();
+        assertTrue(shown.isSeeded());
+
+        // the same view seeded from the computed field of the first view alone, so seeding never compounds
+        IterationField computed = new IterationField(shown.getCenter(), start.getPixelIncrement(), WIDTH, HEIGHT, 300);
+        computed.compute(parallel, 0, 0, WIDTH, HEIGHT, () -> false);
+        IterationCache cache = new IterationCache(Long.MAX_VALUE);
+        cache.put(computed, mandelbrotSet.getPrecision());
+        IterationField expected = new IterationField(shown.getCenter(), shown.getPixelIncrement(), WIDTH, HEIGHT, 300);
+        cache.compute(expected, mandelbrotSet.getPrecision(), parallel, () -> false);
+        assertArrayEquals(expected.getIterations(), shown.getIterations());
+    }
+
+    private static void plot(MandelbrotPanel panel, Viewport view, List<Viewport> likelyNextViews) {
+        panel.plot(view, likelyNextViews);
+        panel.paintComponent(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB).getGraphics());
+    }
+
+    private static void plot(MandelbrotPanel panel, Viewport view, int iterations) {
+        panel.plot(view, iterations, List.of());
+        panel.paintComponent(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB).getGraphics());
+    }
+
+    private static MandelbrotPlotStrategy counting(MandelbrotPlotStrategy strategy, AtomicLong pixels) {
+        return (center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled) -> {
+            strategy.computeIterations(center, width, height, pixelIncrement, iterationField, offset, scanline, isCancelled);
+            pixels.addAndGet((long) width * height);
+        };
+    }
+
+    private static void awaitAtLeast(LongSupplier value, long minimum) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (value.getAsLong() < minimum) {
+            assertTrue(System.currentTimeMillis() < deadline, "still " + value.getAsLong() + " instead of " + minimum);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot;
+
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderStatisticsTest {
+
+    @Test
+    void dwellIsCountedOverTheWholeFrame() {
+        IterationField iterationField = new IterationField(new Complex(0, 0), 0.1d, 3, 2, 100);
+        System.arraycopy(new int[]{0, 10, 20, 100, 100, 30}, 0, iterationField.getIterations(), 0, 6);
+        FrameStatistics statistics = new FrameStatistics();
+        statistics.setWidth(3);
+        statistics.setHeight(2);
+        statistics.countDwell(iterationField);
+        assertEquals(260, statistics.getDwellSum());
+        assertEquals(30, statistics.getMaxDwell());
+        assertEquals(15d, statistics.getMeanDwell(), 1e-9);
+        assertEquals(2, statistics.getInteriorPixels());
+
+        statistics.countWorkerBusyTime(Map.of("worker-1", 1_000_000L), Map.of("worker-1", 3_500_000L, "worker-2", 2_000_000L));
+        assertEquals(Map.of("worker-1", 2.5d, "worker-2", 2d), statistics.getWorkerBusyMillis());
+        String line = statistics.toLogLine();
+        assertTrue(line.contains(" maxDwell=30 "), line);
+        assertTrue(line.contains(" interiorFilledPixels=-1 exteriorFilledPixels=-1 "), line);
+        assertTrue(line.endsWith(" busyMillis.worker-1=2.500 busyMillis.worker-2=2.000"), line);
+    }
+
+    @Test
+    void framesArePublishedOverJmx() throws Exception {
+        System.setProperty("renderStatistics", "true");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(RenderStatistics.OBJECT_NAME);
+        try {
+            RenderStatistics renderStatistics = RenderStatistics.fromSystemProperties();
+            assertNotNull(renderStatistics);
+            for (int frame = 1; frame <= 2; frame++) {
+                FrameStatistics statistics = new FrameStatistics();
+                statistics.setFrame(frame);
+                statistics.setComputedPixels(100);
+                statistics.setFilledPixels(50);
+                statistics.setInteriorFilledPixels(30);
+                statistics.setReusedPixels(25);
+                statistics.setIterateMillis(1.5d);
+                renderStatistics.record(statistics);
+            }
+            assertEquals(2L, server.getAttribute(name, "Frames"));
+            assertEquals(200L, server.getAttribute(name, "ComputedPixels"));
+            assertEquals(60L, server.getAttribute(name, "InteriorFilledPixels"));
+            // not counted by the strategy
+            assertEquals(0L, server.getAttribute(name, "ExteriorFilledPixels"));
+            assertEquals(3d, server.getAttribute(name, "IterateMillis"));
+            CompositeData lastFrame = (CompositeData) server.getAttribute(name, "LastFrame");
+            assertEquals(2L, lastFrame.get("frame"));
+            assertEquals(50L, lastFrame.get("filledPixels"));
+        } finally {
+            System.clearProperty("renderStatistics");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+    }
+
+    @Test
+    void nothingIsCollectedByDefault() {
+        assertNull(RenderStatistics.fromSystemProperties());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.IterationAssertions;
+import com.github.booleannative.mandelbrot.IterationAssertions.CanonicalView;
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import static com.github.booleannative.mandelbrot.IterationAssertions.assertEqualExceptIsolatedPixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundaryTracingPlotStrategyTest {
+
+    @Test
+    void tracesFewerPixelsThanRectangleSubdivision() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(CanonicalView.ITERATIONS);
+        BoundaryTracingPlotStrategy boundaryTracing = new BoundaryTracingPlotStrategy(mandelbrotSet);
+        RecursivelyDetectEnclosedRectanglesPlotStrategy rectangles = new RecursivelyDetectEnclosedRectanglesPlotStrategy(mandelbrotSet);
+        int width = CanonicalView.WIDTH;
+        int height = CanonicalView.HEIGHT;
+        for (CanonicalView view : CanonicalView.values()) {
+            int[] iterationField = new int[width * height];
+            long tracedBefore = boundaryTracing.getComputedPixels();
+            boundaryTracing.computeIterations(view.getCenter(), width, height, view.getPixelIncrement(), iterationField);
+            long traced = boundaryTracing.getComputedPixels() - tracedBefore;
+            long subdividedBefore = rectangles.getComputedPixels();
+            rectangles.computeIterations(view.getCenter(), width, height, view.getPixelIncrement(), new int[width * height]);
+            long subdivided = rectangles.getComputedPixels() - subdividedBefore;
+            assertTrue(traced < subdivided, "traced " + traced + " pixels, subdivision iterated " + subdivided + " at " + view);
+
+            int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, view.getCenter(), width, height, view.getPixelIncrement());
+            assertEqualExceptIsolatedPixels(expected, iterationField, width, "at " + view);
+        }
+    }
+
+    @Test
+    void tileSizeDoesNotChangeImage() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(200);
+        BoundaryTracingPlotStrategy strategy = new BoundaryTracingPlotStrategy(mandelbrotSet);
+        int[] expected = null;
+        for (int tileSize : new int[]{Integer.MAX_VALUE, 7, BoundaryTracingPlotStrategy.DEFAULT_TILE_SIZE}) {
+            strategy.setTileSize(tileSize);
+            int[] iterationField = new int[331 * 217];
+            strategy.computeIterations(new Complex(-0.5, 0), 331, 217, 0.01d, iterationField);
+            if (expected == null) {
+                expected = iterationField;
+            } else {
+                assertArrayEquals(expected, iterationField);
+            }
+        }
+    }
+}
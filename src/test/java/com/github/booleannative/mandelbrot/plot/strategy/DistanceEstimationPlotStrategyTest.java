@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.IterationAssertions;
+import com.github.booleannative.mandelbrot.IterationAssertions.CanonicalView;
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import com.github.booleannative.mandelbrot.kernel.JuliaSet;
+import com.github.booleannative.mandelbrot.kernel.Precision;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceEstimationPlotStrategyTest {
+
+    @Test
+    void fillsDiscsWithoutChangingTheSet() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(CanonicalView.ITERATIONS);
+        DistanceEstimationPlotStrategy strategy = new DistanceEstimationPlotStrategy(mandelbrotSet);
+        int width = CanonicalView.WIDTH;
+        int height = CanonicalView.HEIGHT;
+        for (CanonicalView view : CanonicalView.values()) {
+            int[] iterationField = new int[width * height];
+            long computedBefore = strategy.getComputedPixels();
+            long filledBefore = strategy.getInteriorPixels() + strategy.getExteriorPixels();
+            strategy.computeIterations(view.getCenter(), width, height, view.getPixelIncrement(), iterationField);
+            long computed = strategy.getComputedPixels() - computedBefore;
+            long filled = strategy.getInteriorPixels() + strategy.getExteriorPixels() - filledBefore;
+            assertEquals((long) width * height, computed + filled);
+            assertTrue(filled > width * height / 10, "filled " + filled + " pixels at " + view);
+
+            int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, view.getCenter(), width, height, view.getPixelIncrement());
+            // discs only contain members, and the dwell areas outside of the set are connected, so no square hides a pixel of another dwell
+            assertArrayEquals(expected, iterationField, "at " + view);
+        }
+        assertTrue(strategy.getInteriorPixels() > 0);
+        assertTrue(strategy.getExteriorPixels() > 0);
+    }
+
+    @Test
+    void floatViewsAreIteratedInDoublePrecision() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(500);
+        Complex center = mandelbrotSet.prepareView(BigDecimal.valueOf(-0.5), BigDecimal.ZERO, 0.004d, 750, 500);
+        assertEquals(Precision.FLOAT, mandelbrotSet.getPrecision());
+        int[] iterationField = new int[750 * 500];
+        new DistanceEstimationPlotStrategy(mandelbrotSet).computeIterations(center, 750, 500, 0.004d, iterationField);
+
+        mandelbrotSet.setFloatPrecision(false);
+        int[] expected = new int[750 * 500];
+        mandelbrotSet.computeIterations(-0.5d - 375 * 0.004d, 250 * 0.004d, 0.004d, 750, 500, expected, 0, 750);
+        assertArrayEquals(expected, iterationField);
+    }
+
+    @Test
+    void otherKernelsAreComputedCompletely() {
+        JuliaSet juliaSet = new JuliaSet(JuliaSet.DEFAULT_CONSTANT_REAL, JuliaSet.DEFAULT_CONSTANT_IMAGINARY);
+        juliaSet.setIterations(200);
+        DistanceEstimationPlotStrategy strategy = new DistanceEstimationPlotStrategy(juliaSet);
+        strategy.setTileSize(37);
+        int[] iterationField = new int[300 * 200];
+        strategy.computeIterations(new Complex(0, 0), 300, 200, 0.01d, iterationField);
+        int[] expected = new int[300 * 200];
+        juliaSet.computeIterations(-1.5d, 1d, 0.01d, 300, 200, expected, 0, 300);
+        assertArrayEquals(expected, iterationField);
+        assertEquals(300 * 200, strategy.getComputedPixels());
+        assertEquals(0, strategy.getInteriorPixels() + strategy.getExteriorPixels());
+    }
+}
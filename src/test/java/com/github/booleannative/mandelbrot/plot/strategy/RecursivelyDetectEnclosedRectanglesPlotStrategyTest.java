@@ -17,51 +17,90 @@
 
 package com.github.booleannative.mandelbrot.plot.strategy;
 
+import com.github.booleannative.mandelbrot.IterationAssertions;
+import com.github.booleannative.mandelbrot.IterationAssertions.CanonicalView;
 import com.github.booleannative.mandelbrot.MandelbrotSet;
-import com.github.booleannative.mandelbrot.color.MandelbrotCoordinateColorCalculator;
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.commons.math3.complex.Complex;
 import org.junit.jupiter.api.Test;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
 
+import static com.github.booleannative.mandelbrot.IterationAssertions.assertFewerDifferentPixels;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RecursivelyDetectEnclosedRectanglesPlotStrategyTest {
 
     @Test
     void checkCorrectNumberOfPixelsDrawn() {
-        RecursivelyDetectEnclosedRectanglesPlotStrategy strategy = new RecursivelyDetectEnclosedRectanglesPlotStrategy(new MandelbrotCoordinateColorCalculator() {
+        MutableObject<Integer> numberOfPixelsDrawn=new MutableObject<>(0);
+        // every point needs a different number of iterations, so no rectangle is filled and every pixel is iterated exactly once
+        RecursivelyDetectEnclosedRectanglesPlotStrategy strategy = new RecursivelyDetectEnclosedRectanglesPlotStrategy(new MandelbrotSet() {
 
             @Override
-            public Color determineColor(Complex current) {
-                return Color.BLUE;
+            public int computeIterations(double cReal, double cImaginary) {
+                synchronized (numberOfPixelsDrawn) {
+                    numberOfPixelsDrawn.setValue(numberOfPixelsDrawn.getValue()+1);
+                    return numberOfPixelsDrawn.getValue();
+                }
             }
 
             @Override
-            public Color determineColor(MandelbrotSet.MandelbrotSetMembership mandelBrotResult) {
-                return Color.BLUE;
+            public void computeIterations(double originReal, double originImaginary, double pixelIncrement, int width, int height, int[] iterationBuffer, int offset, int scanline) {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        iterationBuffer[offset + y * scanline + x] = computeIterations(originReal + x * pixelIncrement, originImaginary - y * pixelIncrement);
+                    }
+                }
             }
         });
-        MutableObject<Integer> numberOfPixelsDrawn=new MutableObject<>(0);
 
-        BufferedImage dummyImage=new BufferedImage(1,1,  BufferedImage.TYPE_INT_ARGB){
-            @Override
-            public void setRGB(int x, int y, int color){
-                synchronized (this) {
-                    numberOfPixelsDrawn.setValue(numberOfPixelsDrawn.getValue()+1);
-                }
-            }
-        };
-        strategy.paintManelbrotImage(new Complex(0, 0), 750, 500, 0.0001d, dummyImage);
+        strategy.computeIterations(new Complex(0, 0), 750, 500, 0.0001d, new int[750 * 500]);
         assertEquals(750 * 500, numberOfPixelsDrawn.getValue());
         numberOfPixelsDrawn.setValue(0);
-        strategy.paintManelbrotImage(new Complex(0, 0), 898, 517, 0.0001d, dummyImage);
+        strategy.computeIterations(new Complex(0, 0), 898, 517, 0.0001d, new int[898 * 517]);
         assertEquals(898 * 517, numberOfPixelsDrawn.getValue());
         numberOfPixelsDrawn.setValue(0);
-        strategy.paintManelbrotImage(new Complex(0, 0), 331, 673, 0.0001d, dummyImage);
+        strategy.computeIterations(new Complex(0, 0), 331, 673, 0.0001d, new int[331 * 673]);
         assertEquals(331 * 673, numberOfPixelsDrawn.getValue());
         numberOfPixelsDrawn.setValue(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void minimumTileSizeDoesNotChangeImage() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(200);
+        RecursivelyDetectEnclosedRectanglesPlotStrategy strategy = new RecursivelyDetectEnclosedRectanglesPlotStrategy(mandelbrotSet);
+        int[] expected = null;
+        for (int minimumTileSize : new int[]{Integer.MAX_VALUE, 1, 7, RecursivelyDetectEnclosedRectanglesPlotStrategy.DEFAULT_MINIMUM_TILE_SIZE}) {
+            strategy.setMinimumTileSize(minimumTileSize);
+            int[] iterationField = new int[331 * 217];
+            strategy.computeIterations(new Complex(-0.5, 0), 331, 217, 0.01d, iterationField);
+            if (expected == null) {
+                expected = iterationField;
+            } else {
+                assertArrayEquals(expected, iterationField);
+            }
+        }
+    }
+
+    @Test
+    void uniformBordersAreFilledWithoutIterating() {
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(CanonicalView.ITERATIONS);
+        RecursivelyDetectEnclosedRectanglesPlotStrategy strategy = new RecursivelyDetectEnclosedRectanglesPlotStrategy(mandelbrotSet);
+        int width = CanonicalView.WIDTH;
+        int height = CanonicalView.HEIGHT;
+        for (CanonicalView view : CanonicalView.values()) {
+            int[] iterationField = new int[width * height];
+            long computedPixelsBefore = strategy.getComputedPixels();
+            strategy.computeIterations(view.getCenter(), width, height, view.getPixelIncrement(), iterationField);
+            long computedPixels = strategy.getComputedPixels() - computedPixelsBefore;
+            assertTrue(computedPixels < width * height * 0.6, "iterated " + computedPixels + " of " + width * height + " pixels at " + view);
+
+            int[] expected = IterationAssertions.computeDirectly(mandelbrotSet, view.getCenter(), width, height, view.getPixelIncrement());
+            assertFewerDifferentPixels(expected, iterationField, width * height / 200, "at " + view);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.plot.strategy;
+
+import com.github.booleannative.mandelbrot.MandelbrotSet;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderExecutorTest {
+
+    @Test
+    void backgroundWorkWaitsForInteractiveWork() throws InterruptedException {
+        RenderExecutor executor = new RenderExecutor(2);
+        CountDownLatch interactiveStarted = new CountDownLatch(1);
+        CountDownLatch releaseInteractive = new CountDownLatch(1);
+        AtomicBoolean backgroundRan = new AtomicBoolean();
+        Thread interactive = new Thread(() -> executor.getInteractive().invoke(() -> {
+            interactiveStarted.countDown();
+            await(releaseInteractive);
+        }));
+        interactive.start();
+        assertTrue(interactiveStarted.await(5, TimeUnit.SECONDS));
+        Thread background = new Thread(() -> executor.getBackground().invoke(() -> backgroundRan.set(true)));
+        background.start();
+
+        Thread.sleep(200);
+        assertFalse(backgroundRan.get());
+        assertEquals(1, executor.getBackgroundQueueDepth());
+        releaseInteractive.countDown();
+        interactive.join(5000);
+        background.join(5000);
+        assertTrue(backgroundRan.get());
+        assertEquals(0, executor.getBackgroundQueueDepth());
+        assertEquals(1, executor.getInteractiveInvocations());
+        assertEquals(1, executor.getBackgroundInvocations());
+        assertTrue(executor.getInteractiveUtilization() > 0);
+    }
+
+    @Test
+    void runningBackgroundWorkPausesAtCheckpoints() throws InterruptedException {
+        RenderExecutor executor = new RenderExecutor(1);
+        AtomicInteger checks = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        BooleanSupplier checkpoint = executor.getBackground().checkpoint(() -> {
+            checks.incrementAndGet();
+            return stop.get();
+        });
+        Thread background = new Thread(() -> executor.getBackground().invoke(() -> {
+            while (!checkpoint.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+        }));
+        background.start();
+        while (checks.get() == 0) {
+            Thread.sleep(1);
+        }
+        executor.getInteractive().invoke(() -> {
+            int checksBefore = checks.get();
+            sleep(100);
+            // at most the check that was running when the interactive work started
+            assertTrue(checks.get() - checksBefore <= 1);
+        });
+        stop.set(true);
+        background.join(5000);
+        assertFalse(background.isAlive());
+    }
+
+    @Test
+    void strategiesRenderOnTheWorkersOfTheirLane() {
+        RenderExecutor executor = new RenderExecutor(3);
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        BooleanSupplier recordThread = () -> {
+            threads.add(Thread.currentThread().getName());
+            return false;
+        };
+        for (PlotStrategyType type : PlotStrategyType.values()) {
+            int[] interactive = new int[200 * 150];
+            type.create(mandelbrotSet, executor.getInteractive()).computeIterations(new Complex(-0.5, 0), 200, 150, 0.015d, interactive, 0, 200, recordThread);
+            int[] background = new int[200 * 150];
+            type.create(mandelbrotSet, executor.getBackground()).computeIterations(new Complex(-0.5, 0), 200, 150, 0.015d, background, 0, 200, recordThread);
+            assertArrayEquals(interactive, background, type.name());
+        }
+        assertFalse(threads.isEmpty());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("render-interactive-") || name.startsWith("render-background-")), threads.toString());
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("render-background-")), threads.toString());
+        assertEquals(3, executor.getThreads());
+        assertFalse(executor.getWorkerCpuNanos().isEmpty());
+    }
+
+    @Test
+    void cancelledStrategiesOnlyCountTheRowsTheyComputed() {
+        RenderExecutor executor = new RenderExecutor(1);
+        MandelbrotSet mandelbrotSet = new MandelbrotSet();
+        mandelbrotSet.setIterations(300);
+        ParallelPlotStrategy strategy = new ParallelPlotStrategy(mandelbrotSet, executor.getInteractive());
+        AtomicInteger rows = new AtomicInteger();
+        BooleanSupplier cancelAfterFiveRows = () -> rows.incrementAndGet() > 5;
+        assertThrows(CancellationException.class, () -> strategy.computeIterations(new Complex(-0.5, 0), 200, 150, 0.015d, new int[200 * 150], 0, 200, cancelAfterFiveRows));
+        assertEquals(5 * 200, strategy.getComputedPixels());
+
+        strategy.computeIterations(new Complex(-0.5, 0), 200, 150, 0.015d, new int[200 * 150], 0, 200, () -> false);
+        assertEquals(5 * 200 + 200 * 150, strategy.getComputedPixels());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
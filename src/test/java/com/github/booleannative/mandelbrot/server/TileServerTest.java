@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.server;
+
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileServerTest {
+
+    @Test
+    void servesPngTiles() throws IOException {
+        try (TileServer server = new TileServer(new TileRenderer(PlotStrategyType.RECTANGLES), 0, 2, 4, 200)) {
+            HttpURLConnection connection = open(server, "/0/0/0.png");
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("image/png", connection.getContentType());
+            try (InputStream in = connection.getInputStream()) {
+                BufferedImage tile = ImageIO.read(in);
+                assertEquals(TileKey.TILE_SIZE, tile.getWidth());
+                assertEquals(TileKey.TILE_SIZE, tile.getHeight());
+            }
+            assertEquals(400, open(server, "/1/2/0.png").getResponseCode());
+            assertEquals(400, open(server, "/1/0/0.png?iterations=0").getResponseCode());
+            assertEquals(404, open(server, "/mandelbrot.png").getResponseCode());
+            assertTrue(metrics(server).contains("tiles_served 1\n"));
+        }
+    }
+
+    @Test
+    void identicalRequestsShareOneRendering() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renderings = new AtomicInteger();
+        TileRenderer renderer = blockingRenderer(release, renderings);
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        try (TileServer server = new TileServer(renderer, 0, 2, 4, 200)) {
+            Future<Integer> first = clients.submit(() -> open(server, "/3/1/2.png").getResponseCode());
+            Future<Integer> second = clients.submit(() -> open(server, "/3/1/2.png").getResponseCode());
+            Future<Integer> third = clients.submit(() -> open(server, "/3/1/2.png").getResponseCode());
+            awaitMetric(server, "tile_renderings_shared 2\n");
+            release.countDown();
+            assertEquals(200, first.get());
+            assertEquals(200, second.get());
+            assertEquals(200, third.get());
+            assertEquals(1, renderings.get());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void overloadedRequestsAreRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TileRenderer renderer = blockingRenderer(release, new AtomicInteger());
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try (TileServer server = new TileServer(renderer, 0, 1, 1, 200)) {
+            Future<Integer> rendered = clients.submit(() -> open(server, "/2/0/0.png").getResponseCode());
+            awaitMetric(server, "render_threads_active 1\n");
+            Future<Integer> queued = clients.submit(() -> open(server, "/2/0/1.png").getResponseCode());
+            awaitMetric(server, "render_queue_length 1\n");
+            HttpURLConnection rejected = open(server, "/2/0/2.png");
+            assertEquals(503, rejected.getResponseCode());
+            assertEquals("1", rejected.getHeaderField("Retry-After"));
+            release.countDown();
+            assertEquals(200, rendered.get());
+            assertEquals(200, queued.get());
+            assertTrue(metrics(server).contains("tile_requests_rejected 1\n"));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static TileRenderer blockingRenderer(CountDownLatch release, AtomicInteger renderings) {
+        return new TileRenderer(PlotStrategyType.PARALLEL) {
+            @Override
+            public byte[] render(TileKey key) {
+                renderings.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new byte[]{1, 2, 3};
+            }
+        };
+    }
+
+    private static void awaitMetric(TileServer server, String metric) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!metrics(server).contains(metric)) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + metric.trim());
+            Thread.sleep(10);
+        }
+    }
+
+    private static String metrics(TileServer server) throws IOException {
+        try (InputStream in = open(server, "/metrics").getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static HttpURLConnection open(TileServer server, String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.server;
+
+import com.github.booleannative.mandelbrot.plot.strategy.PlotStrategyType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileStoreTest {
+    private static final int TILE_BYTES = (2 + TileKey.TILE_SIZE * TileKey.TILE_SIZE) * Integer.BYTES;
+
+    @Test
+    void tilesSurviveARestart() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        try {
+            TileKey key = new TileKey(2, 1, 3, 200);
+            int[] iterations = tile(7);
+            new TileStore(directory, 10 * TILE_BYTES).put(key, "double", iterations);
+
+            TileStore restarted = new TileStore(directory, 10 * TILE_BYTES);
+            assertArrayEquals(iterations, restarted.get(key, "double"));
+            assertNull(restarted.get(key, "float"));
+            assertNull(restarted.get(new TileKey(2, 1, 3, 300), "double"));
+            assertEquals(1, restarted.getHits());
+            assertEquals(2, restarted.getMisses());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedTilesAreEvicted() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        try {
+            TileStore store = new TileStore(directory, 2 * TILE_BYTES);
+            TileKey first = new TileKey(1, 0, 0, 100);
+            TileKey second = new TileKey(1, 0, 1, 100);
+            TileKey third = new TileKey(1, 1, 0, 100);
+            store.put(first, "double", tile(1));
+            store.put(second, "double", tile(2));
+            assertNotNull(store.get(first, "double"));
+            store.put(third, "double", tile(3));
+            assertNull(store.get(second, "double"));
+            assertNotNull(store.get(first, "double"));
+            assertNotNull(store.get(third, "double"));
+            assertEquals(1, store.getEvictions());
+            assertEquals(2 * TILE_BYTES, store.getSizeBytes());
+
+            TileStore smaller = new TileStore(directory, TILE_BYTES);
+            assertEquals(TILE_BYTES, smaller.getSizeBytes());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void rendererReadsStoredTilesBeforeComputing() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        try {
+            TileStore store = new TileStore(directory, 10 * TILE_BYTES);
+            TileRenderer renderer = new TileRenderer(PlotStrategyType.RECTANGLES, store);
+            TileKey key = new TileKey(3, 2, 3, 300);
+            int[] computed = renderer.computeIterations(key);
+            assertEquals(0, store.getHits());
+            assertArrayEquals(computed, renderer.computeIterations(key));
+            assertEquals(1, store.getHits());
+            assertArrayEquals(computed, new TileRenderer(PlotStrategyType.RECTANGLES, new TileStore(directory, 10 * TILE_BYTES)).computeIterations(key));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void tilesThatCannotBeWrittenAreServedAnyway() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        try {
+            TileStore store = new TileStore(directory, 10 * TILE_BYTES);
+            TileKey key = new TileKey(3, 2, 3, 300);
+            // a file where the directories of every variant of the tile should be
+            for (PlotStrategyType strategyType : PlotStrategyType.values()) {
+                for (String precision : new String[]{"float", "double"}) {
+                    Files.createFile(directory.resolve("mandelbrot-" + precision + "-" + strategyType.name().toLowerCase(Locale.ROOT).replace('_', '-') + "-300"));
+                }
+            }
+            TileRenderer renderer = new TileRenderer(PlotStrategyType.PARALLEL, store);
+            assertArrayEquals(new TileRenderer(PlotStrategyType.PARALLEL).computeIterations(key), renderer.computeIterations(key));
+            assertEquals(0, store.getSizeBytes());
+            assertNull(store.get(key, "mandelbrot-double-parallel"));
+            assertNotNull(renderer.render(key));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void strategiesDoNotShareTiles() throws IOException {
+        Path directory = Files.createTempDirectory("tiles");
+        try {
+            TileStore store = new TileStore(directory, 10 * TILE_BYTES);
+            TileKey key = new TileKey(3, 2, 3, 300);
+            new TileRenderer(PlotStrategyType.RECTANGLES, store).computeIterations(key);
+            new TileRenderer(PlotStrategyType.PARALLEL, store).computeIterations(key);
+            assertEquals(0, store.getHits());
+            assertEquals(2 * TILE_BYTES, store.getSizeBytes());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static int[] tile(int seed) {
+        int[] iterations = new int[TileKey.TILE_SIZE * TileKey.TILE_SIZE];
+        for (int i = 0; i < iterations.length; i++) {
+            iterations[i] = (i * seed) % 100;
+        }
+        return iterations;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 Mark Spoerndli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.github.booleannative.mandelbrot.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Iterates as many points of a row at once as the preferred vector shape of the CPU holds.
+ * Points that escaped, were found to be periodic or lie in the main cardioid or period-2 bulb are masked out,
+ * the vector loop ends once no point is left. The arithmetic is the same as in the scalar loop, operation by operation,
+ * so the results are identical.
+ */
+public class VectorRowKernel implements RowKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final DoubleVector LANE_INDEXES = DoubleVector.fromArray(SPECIES, laneIndexes(), 0);
+    // twice as many lanes as with double
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private static double[] laneIndexes() {
+        double[] indexes = new double[SPECIES.length()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    @Override
+    public void computeRow(double originReal, double imaginary, double pixelIncrement, int width, int iterations,
+                           boolean interiorCheck, boolean periodicityCheck, int[] iterationBuffer, int offset) {
+        int lanes = SPECIES.length();
+        double[] laneIterations = new double[lanes];
+        for (int x = 0; x < width; x += lanes) {
+            DoubleVector cReal = DoubleVector.broadcast(SPECIES, x).add(LANE_INDEXES).mul(pixelIncrement).add(originReal);
+            VectorMask<Double> active = SPECIES.indexInRange(x, width);
+            VectorMask<Double> interior = SPECIES.maskAll(false);
+            if (interiorCheck) {
+                interior = inMainCardioidOrPeriod2Bulb(cReal, imaginary);
+                active = active.andNot(interior);
+            }
+            DoubleVector iterationsNeeded = periodicityCheck
+                    ? iterateWithPeriodicityCheck(cReal, imaginary, iterations, active, interior)
+                    : iterate(cReal, imaginary, iterations, active, interior);
+            iterationsNeeded.intoArray(laneIterations, 0);
+            for (int lane = 0; lane < lanes && x + lane < width; lane++) {
+                iterationBuffer[offset + x + lane] = (int) laneIterations[lane];
+            }
+        }
+    }
+
+    @Override
+    public void computeRowFloat(double originReal, double imaginary, double pixelIncrement, int width, int iterations,
+                                boolean interiorCheck, boolean periodicityCheck, int[] iterationBuffer, int offset) {
+        int lanes = FLOAT_SPECIES.length();
+        float[] laneReal = new float[lanes];
+        boolean[] laneInterior = new boolean[lanes];
+        float[] laneIterations = new float[lanes];
+        float cImaginary = (float) imaginary;
+        for (int x = 0; x < width; x += lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                double real = originReal + (x + lane) * pixelIncrement;
+                laneReal[lane] = (float) real;
+                laneInterior[lane] = interiorCheck && isInMainCardioidOrPeriod2Bulb(real, imaginary);
+            }
+            FloatVector cReal = FloatVector.fromArray(FLOAT_SPECIES, laneReal, 0);
+            VectorMask<Float> interior = VectorMask.fromArray(FLOAT_SPECIES, laneInterior, 0);
+            VectorMask<Float> active = FLOAT_SPECIES.indexInRange(x, width).andNot(interior);
+            FloatVector iterationsNeeded = periodicityCheck
+                    ? iterateWithPeriodicityCheck(cReal, cImaginary, iterations, active, interior)
+                    : iterate(cReal, cImaginary, iterations, active, interior);
+            iterationsNeeded.intoArray(laneIterations, 0);
+            for (int lane = 0; lane < lanes && x + lane < width; lane++) {
+                iterationBuffer[offset + x + lane] = (int) laneIterations[lane];
+            }
+        }
+    }
+
+    private static boolean isInMainCardioidOrPeriod2Bulb(double cReal, double cImaginary) {
+        double imaginarySquared = cImaginary * cImaginary;
+        double shiftedReal = cReal - 0.25d;
+        double q = shiftedReal * shiftedReal + imaginarySquared;
+        if (q * (q + shiftedReal) <= 0.25d * imaginarySquared) {
+            return true;
+        }
+        double bulbReal = cReal + 1d;
+        return bulbReal * bulbReal + imaginarySquared <= 0.0625d;
+    }
+
+    private static VectorMask<Double> inMainCardioidOrPeriod2Bulb(DoubleVector cReal, double cImaginary) {
+        double imaginarySquared = cImaginary * cImaginary;
+        DoubleVector shiftedReal = cReal.sub(0.25d);
+        DoubleVector q = shiftedReal.mul(shiftedReal).add(imaginarySquared);
+        VectorMask<Double> inCardioid = q.mul(q.add(shiftedReal)).compare(VectorOperators.LE, 0.25d * imaginarySquared);
+        DoubleVector bulbReal = cReal.add(1d);
+        VectorMask<Double> inBulb = bulbReal.mul(bulbReal).add(imaginarySquared).compare(VectorOperators.LE, 0.0625d);
+        return inCardioid.or(inBulb);
+    }
+
+    // counts the completed iterations of each active lane, members end up with the maximum number of iterations
+    private static DoubleVector iterate(DoubleVector cReal, double cImaginary, int iterations, VectorMask<Double> active, VectorMask<Double> members) {
+        DoubleVector iterationsNeeded = DoubleVector.zero(SPECIES);
+        DoubleVector lastReal = DoubleVector.zero(SPECIES);
+        DoubleVector zImaginary = DoubleVector.zero(SPECIES);
+        int iteration = 0;
+        while (iteration < iterations) {
+            DoubleVector zReal = lastReal.mul(lastReal).sub(zImaginary.mul(zImaginary)).add(cReal);
+            active = active.and(zReal.abs().compare(VectorOperators.LE, 2d));
+            if (!active.anyTrue()) {
+                break;
+            }
+            iterationsNeeded = iterationsNeeded.add(1d, active);
+            zImaginary = lastReal.mul(2d).mul(zImaginary).add(cImaginary);
+            lastReal = zReal;
+            iteration++;
+        }
+        return iterationsNeeded.blend(iterations, members);
+    }
+
+    private static DoubleVector iterateWithPeriodicityCheck(DoubleVector cReal, double cImaginary, int iterations, VectorMask<Double> active, VectorMask<Double> members) {
+        DoubleVector iterationsNeeded = DoubleVector.zero(SPECIES);
+        DoubleVector lastReal = DoubleVector.zero(SPECIES);
+        DoubleVector zImaginary = DoubleVector.zero(SPECIES);
+        DoubleVector checkReal = lastReal;
+        DoubleVector checkImaginary = zImaginary;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        int iteration = 0;
+        while (iteration < iterations) {
+            DoubleVector zReal = lastReal.mul(lastReal).sub(zImaginary.mul(zImaginary)).add(cReal);
+            active = active.and(zReal.abs().compare(VectorOperators.LE, 2d));
+            if (!active.anyTrue()) {
+                break;
+            }
+            iterationsNeeded = iterationsNeeded.add(1d, active);
+            zImaginary = lastReal.mul(2d).mul(zImaginary).add(cImaginary);
+            lastReal = zReal;
+            iteration++;
+            VectorMask<Double> periodicReal = lastReal.compare(VectorOperators.EQ, checkReal);
+            if (periodicReal.anyTrue()) {
+                VectorMask<Double> periodic = periodicReal.and(zImaginary.compare(VectorOperators.EQ, checkImaginary)).and(active);
+                members = members.or(periodic);
+                active = active.andNot(periodic);
+            }
+            // blending instead of conditionally assigning the remembered z keeps the vectors in registers
+            boolean remember = ++sinceCheck == checkInterval;
+            VectorMask<Double> update = SPECIES.maskAll(remember);
+            checkReal = checkReal.blend(lastReal, update);
+            checkImaginary = checkImaginary.blend(zImaginary, update);
+            if (remember) {
+                sinceCheck = 0;
+                checkInterval <<= 1;
+            }
+        }
+        return iterationsNeeded.blend(iterations, members);
+    }
+
+    // float versions of the loops above, the iteration counts are exact in float up to 2^24 iterations
+    private static FloatVector iterate(FloatVector cReal, float cImaginary, int iterations, VectorMask<Float> active, VectorMask<Float> members) {
+        FloatVector iterationsNeeded = FloatVector.zero(FLOAT_SPECIES);
+        FloatVector lastReal = FloatVector.zero(FLOAT_SPECIES);
+        FloatVector zImaginary = FloatVector.zero(FLOAT_SPECIES);
+        int iteration = 0;
+        while (iteration < iterations) {
+            FloatVector zReal = lastReal.mul(lastReal).sub(zImaginary.mul(zImaginary)).add(cReal);
+            active = active.and(zReal.abs().compare(VectorOperators.LE, 2f));
+            if (!active.anyTrue()) {
+                break;
+            }
+            iterationsNeeded = iterationsNeeded.add(1f, active);
+            zImaginary = lastReal.mul(2f).mul(zImaginary).add(cImaginary);
+            lastReal = zReal;
+            iteration++;
+        }
+        return iterationsNeeded.blend(iterations, members);
+    }
+
+    private static FloatVector iterateWithPeriodicityCheck(FloatVector cReal, float cImaginary, int iterations, VectorMask<Float> active, VectorMask<Float> members) {
+        FloatVector iterationsNeeded = FloatVector.zero(FLOAT_SPECIES);
+        FloatVector lastReal = FloatVector.zero(FLOAT_SPECIES);
+        FloatVector zImaginary = FloatVector.zero(FLOAT_SPECIES);
+        FloatVector checkReal = lastReal;
+        FloatVector checkImaginary = zImaginary;
+        int checkInterval = 1;
+        int sinceCheck = 0;
+        int iteration = 0;
+        while (iteration < iterations) {
+            FloatVector zReal = lastReal.mul(lastReal).sub(zImaginary.mul(zImaginary)).add(cReal);
+            active = active.and(zReal.abs().compare(VectorOperators.LE, 2f));
+            if (!active.anyTrue()) {
+                break;
+            }
+            iterationsNeeded = iterationsNeeded.add(1f, active);
+            zImaginary = lastReal.mul(2f).mul(zImaginary).add(cImaginary);
+            lastReal = zReal;
+            iteration++;
+            VectorMask<Float> periodicReal = lastReal.compare(VectorOperators.EQ, checkReal);
+            if (periodicReal.anyTrue()) {
+                VectorMask<Float> periodic = periodicReal.and(zImaginary.compare(VectorOperators.EQ, checkImaginary)).and(active);
+                members = members.or(periodic);
+                active = active.andNot(periodic);
+            }
+            boolean remember = ++sinceCheck == checkInterval;
+            VectorMask<Float> update = FLOAT_SPECIES.maskAll(remember);
+            checkReal = checkReal.blend(lastReal, update);
+            checkImaginary = checkImaginary.blend(zImaginary, update);
+            if (remember) {
+                sinceCheck = 0;
+                checkInterval <<= 1;
+            }
+        }
+        return iterationsNeeded.blend(iterations, members);
+    }
+}